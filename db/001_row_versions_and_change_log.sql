@@ -0,0 +1,17 @@
+-- Row versions and the cross-instance change log (see repository.ChangeLogRepository).
+-- Run once against the application schema before deploying a build that reads them.
+
+ALTER TABLE AppointmentRequest ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE Consultation       ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE ChangeLog (
+    id        BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity    VARCHAR(32) NOT NULL,
+    entityId  BIGINT      NOT NULL,
+    doctorId  BIGINT      NOT NULL,
+    origin    CHAR(36)    NOT NULL,
+    changedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+-- Pollers only read WHERE id > ?; old rows can be purged at any time, e.g.
+-- DELETE FROM ChangeLog WHERE changedAt < NOW(3) - INTERVAL 1 DAY;
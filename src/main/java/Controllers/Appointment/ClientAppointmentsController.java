@@ -11,6 +11,7 @@ import javafx.scene.layout.*;
 import models.AppointmentRequest;
 import models.Doctor;
 import models.ProposedDate;
+import repository.AppointmentRequestRepository.Expand;
 import service.AppointmentRequestService;
 import service.DoctorService;
 
@@ -18,7 +19,9 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import java.net.URL;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 
@@ -62,13 +65,12 @@ public class ClientAppointmentsController implements Initializable {
         // Run DB work on a background thread
         Thread thread = new Thread(() -> {
             try {
-                List<AppointmentRequest> list = service.getAppointmentsByClientId(CLIENT_ID);
-
-                // Pre-fetch all doctors in the background too
-                for (AppointmentRequest app : list) {
-                    Doctor doc = doctorService.getDoctorById(app.getDoctorId());
-                    app.setDoctor(doc); // Store doctor on the appointment (see note below)
-                }
+                // Appointments and proposed dates in one JOIN; the few distinct doctors come
+                // from DoctorService's profile cache (one batched query for any it misses)
+                List<AppointmentRequest> list = service.getEnrichedByClientId(CLIENT_ID, EnumSet.noneOf(Expand.class));
+                Map<Long, Doctor> doctors = doctorService.getDoctorsByIds(
+                        list.stream().map(AppointmentRequest::getDoctorId).collect(Collectors.toList()));
+                list.forEach(app -> app.setDoctor(doctors.get(app.getDoctorId())));
 
                 // Back to UI thread to render
                 Platform.runLater(() -> {
@@ -125,7 +127,7 @@ public class ClientAppointmentsController implements Initializable {
     }
 
     private HBox createAppointmentCard(AppointmentRequest app) {
-        // Doctor was pre-fetched in loadAppointments(), no extra DB call needed here
+        // Doctor was attached by loadAppointments(), no extra DB call needed here
         Doctor doc = app.getDoctor();
         String docName    = (doc != null && doc.getFullname() != null)    ? doc.getFullname()      : "Unknown Doctor";
         String speciality = (doc != null && doc.getSpeciality() != null)  ? doc.getSpeciality()   : "Generalist";
@@ -10,10 +10,10 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.Rectangle;
 import models.AppointmentRequest;
+import models.AppointmentTimeline;
 import models.Client;
 import models.ProposedDate;
 import service.AppointmentRequestService;
-import service.ClientService;
 
 import java.net.URL;
 import java.sql.SQLException;
@@ -22,7 +22,6 @@ import java.time.LocalDateTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class DoctorDashboardController implements Initializable {
 
@@ -43,10 +42,10 @@ public class DoctorDashboardController implements Initializable {
     @FXML private VBox   detailList;
 
     // ── STATE ─────────────────────────────────────────────────────
-    private final AppointmentRequestService apptService   = new AppointmentRequestService();
-    private final ClientService             clientService = new ClientService();
+    private final AppointmentRequestService apptService = new AppointmentRequestService();
 
-    private List<AppointmentRequest> allAppointments = new ArrayList<>();
+    // Columnar copy of every appointment of the doctor; cards are materialized from it on render
+    private AppointmentTimeline timeline = AppointmentTimeline.empty(DOCTOR_ID);
     private String    currentFilter   = "ALL";
     private YearMonth currentMonth    = YearMonth.now();
     private StackPane selectedDayCell = null;
@@ -60,10 +59,12 @@ public class DoctorDashboardController implements Initializable {
 
     private void loadData() {
         try {
-            allAppointments = apptService.getAppointmentsByDoctorId(DOCTOR_ID);
+            // Per-doctor snapshot with clients attached: after a confirm/refuse this is
+            // served from memory, and the cards need no further lookups
+            timeline = apptService.getTimeline(DOCTOR_ID);
         } catch (SQLException e) {
             showAlert(Alert.AlertType.ERROR, "Error", "Could not load appointments: " + e.getMessage());
-            allAppointments = new ArrayList<>();
+            timeline = AppointmentTimeline.empty(DOCTOR_ID);
         }
         refreshUI();
     }
@@ -75,18 +76,21 @@ public class DoctorDashboardController implements Initializable {
     }
 
     // ── STATS ─────────────────────────────────────────────────────
+    // One GROUP BY query, independent of how much history the list has loaded
     private void updateStats() {
-        countPending.setText(String.valueOf(count("PENDING")));
-        countConfirmed.setText(String.valueOf(count("CONFIRMED")));
-        countRefused.setText(String.valueOf(count("REFUSED")));
-        countConsulted.setText(String.valueOf(count("CONSULTED")));
-        totalBadge.setText(allAppointments.size() + " total");
-    }
-
-    private long count(String status) {
-        return allAppointments.stream()
-                .filter(a -> status.equalsIgnoreCase(a.getStatus()))
-                .count();
+        Map<String, Long> counts;
+        try {
+            counts = apptService.countByStatus(DOCTOR_ID);
+        } catch (SQLException e) {
+            System.err.println("[DoctorDashboard] Stats error: " + e.getMessage());
+            counts = Map.of();
+        }
+        countPending.setText(String.valueOf(counts.getOrDefault("PENDING", 0L)));
+        countConfirmed.setText(String.valueOf(counts.getOrDefault("CONFIRMED", 0L)));
+        countRefused.setText(String.valueOf(counts.getOrDefault("REFUSED", 0L)));
+        countConsulted.setText(String.valueOf(counts.getOrDefault("CONSULTED", 0L)));
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        totalBadge.setText(total + " total");
     }
 
     // ── FILTER TABS ───────────────────────────────────────────────
@@ -112,11 +116,9 @@ public class DoctorDashboardController implements Initializable {
     private void renderAppointmentList() {
         appointmentList.getChildren().clear();
 
-        List<AppointmentRequest> filtered = allAppointments.stream()
-                .filter(a -> "ALL".equals(currentFilter) || currentFilter.equalsIgnoreCase(a.getStatus()))
-                .collect(Collectors.toList());
+        int[] rows = timeline.rowsWithStatus(currentFilter);
 
-        if (filtered.isEmpty()) {
+        if (rows.length == 0) {
             Label empty = new Label("No appointments found.");
             empty.getStyleClass().add("detail-empty-label");
             empty.setMaxWidth(Double.MAX_VALUE);
@@ -125,17 +127,16 @@ public class DoctorDashboardController implements Initializable {
             return;
         }
 
-        for (AppointmentRequest appt : filtered)
-            appointmentList.getChildren().add(buildCard(appt));
+        for (int row : rows) {
+            AppointmentRequest appt = timeline.get(row);
+            appointmentList.getChildren().add(buildCard(appt, appt.getClient()));
+        }
     }
 
-    private VBox buildCard(AppointmentRequest appt) {
+    private VBox buildCard(AppointmentRequest appt, Client c) {
         // Client name
         String clientName = "Client #" + appt.getClientId();
-        try {
-            Client c = clientService.getById(appt.getClientId());
-            if (c != null && c.getFullname() != null) clientName = c.getFullname();
-        } catch (Exception ignored) {}
+        if (c != null && c.getFullname() != null) clientName = c.getFullname();
 
         // Status color
         String barColor = switch (appt.getStatus().toUpperCase()) {
@@ -346,11 +347,14 @@ public class DoctorDashboardController implements Initializable {
         calendarGrid.getChildren().clear();
         calMonthLabel.setText(currentMonth.atDay(1).format(MONTH_FMT));
 
-        Map<LocalDate, List<AppointmentRequest>> confirmedByDay = allAppointments.stream()
-                .filter(a -> "CONFIRMED".equalsIgnoreCase(a.getStatus())
-                        && a.getConfirmedDate() != null
-                        && YearMonth.from(a.getConfirmedDate()).equals(currentMonth))
-                .collect(Collectors.groupingBy(a -> a.getConfirmedDate().toLocalDate()));
+        // Only the visible month is counted, with one GROUP BY over the confirmedDate range
+        Map<LocalDate, Integer> confirmedByDay;
+        try {
+            confirmedByDay = apptService.countConfirmedByDay(DOCTOR_ID, currentMonth);
+        } catch (SQLException e) {
+            System.err.println("[DoctorDashboard] Calendar error: " + e.getMessage());
+            confirmedByDay = Map.of();
+        }
 
         String[] headers = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
         for (int i = 0; i < 7; i++) {
@@ -367,21 +371,21 @@ public class DoctorDashboardController implements Initializable {
         int row = 1, col = startDow;
 
         for (int i = 0; i < startDow; i++)
-            calendarGrid.add(makeDayCell(first.minusDays(startDow - i), true, false, null), i, row);
+            calendarGrid.add(makeDayCell(first.minusDays(startDow - i), true, false, 0), i, row);
 
         for (int day = 1; day <= currentMonth.lengthOfMonth(); day++) {
             LocalDate date = currentMonth.atDay(day);
-            calendarGrid.add(makeDayCell(date, false, date.equals(today), confirmedByDay.get(date)), col, row);
+            calendarGrid.add(makeDayCell(date, false, date.equals(today),
+                    confirmedByDay.getOrDefault(date, 0)), col, row);
             if (++col == 7) { col = 0; row++; }
         }
 
         int next = 1;
         while (col > 0 && col < 7)
-            calendarGrid.add(makeDayCell(currentMonth.atEndOfMonth().plusDays(next++), true, false, null), col++, row);
+            calendarGrid.add(makeDayCell(currentMonth.atEndOfMonth().plusDays(next++), true, false, 0), col++, row);
     }
 
-    private StackPane makeDayCell(LocalDate date, boolean otherMonth, boolean isToday,
-                                  List<AppointmentRequest> appts) {
+    private StackPane makeDayCell(LocalDate date, boolean otherMonth, boolean isToday, int confirmedCount) {
         StackPane cell = new StackPane();
         cell.setMinSize(44, 40);
         cell.setMaxSize(44, 40);
@@ -396,7 +400,7 @@ public class DoctorDashboardController implements Initializable {
         } else if (isToday) {
             cell.getStyleClass().addAll("cal-day", "cal-day-today");
             dayNum.getStyleClass().add("cal-day-today");
-        } else if (appts != null && !appts.isEmpty()) {
+        } else if (confirmedCount > 0) {
             cell.getStyleClass().add("cal-day");
             dayNum.getStyleClass().add("cal-day-has-appt");
             Circle dot = new Circle(3, Color.web("#10b981"));
@@ -408,14 +412,12 @@ public class DoctorDashboardController implements Initializable {
             dayNum.getStyleClass().add("cal-day");
         }
 
-        if (!otherMonth) {
-            final List<AppointmentRequest> finalAppts = appts;
-            cell.setOnMouseClicked(e -> selectDay(cell, date, finalAppts));
-        }
+        if (!otherMonth)
+            cell.setOnMouseClicked(e -> selectDay(cell, date));
         return cell;
     }
 
-    private void selectDay(StackPane cell, LocalDate date, List<AppointmentRequest> appts) {
+    private void selectDay(StackPane cell, LocalDate date) {
         if (selectedDayCell != null)
             selectedDayCell.getStyleClass().removeAll("cal-day-selected");
         cell.getStyleClass().add("cal-day-selected");
@@ -424,24 +426,30 @@ public class DoctorDashboardController implements Initializable {
         detailDateLabel.setText("Appointments — " + date.format(DateTimeFormatter.ofPattern("dd MMMM yyyy")));
         detailList.getChildren().clear();
 
-        if (appts == null || appts.isEmpty()) {
+        List<AppointmentRequest> confirmed;
+        try {
+            confirmed = apptService.getConfirmedOn(DOCTOR_ID, date);
+        } catch (SQLException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Could not load the day: " + e.getMessage());
+            confirmed = List.of();
+        }
+
+        if (confirmed.isEmpty()) {
             Label empty = new Label("✨  No appointments on this day.");
             empty.getStyleClass().add("detail-empty-label");
             empty.setMaxWidth(Double.MAX_VALUE);
             empty.setAlignment(Pos.CENTER);
             detailList.getChildren().add(empty);
         } else {
-            for (AppointmentRequest a : appts)
+            for (AppointmentRequest a : confirmed)
                 detailList.getChildren().add(buildDetailRow(a));
         }
     }
 
     private HBox buildDetailRow(AppointmentRequest a) {
+        Client c = a.getClient();
         String clientName = "Client #" + a.getClientId();
-        try {
-            Client c = clientService.getById(a.getClientId());
-            if (c != null && c.getFullname() != null) clientName = c.getFullname();
-        } catch (Exception ignored) {}
+        if (c != null && c.getFullname() != null) clientName = c.getFullname();
 
         HBox row = new HBox(12);
         row.getStyleClass().add("detail-appt-row");
@@ -15,6 +15,7 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Optional;
 
 public class AddConsultationDoctorController {
 
@@ -55,13 +56,18 @@ public class AddConsultationDoctorController {
         // ── Meta chips ──
         metaApptId.setText("#" + appt.getId());
 
-        // Resolve client name
+        // Resolve client name (already attached when the appointment came from a snapshot)
+        String clientName = "Client #" + appt.getClientId();
         try {
-            Client client = clientService.getById(appt.getClientId());
-            metaClientName.setText(client.getFullname().trim());
-        } catch (Exception e) {
-            metaClientName.setText("Client #" + appt.getClientId());
+            Optional<Client> client = appt.getClient() != null
+                    ? Optional.of(appt.getClient())
+                    : clientService.findById(appt.getClientId());
+            if (client.isPresent() && client.get().getFullname() != null)
+                clientName = client.get().getFullname().trim();
+        } catch (SQLException e) {
+            System.err.println("[AddConsultationDoctor] Client lookup error: " + e.getMessage());
         }
+        metaClientName.setText(clientName);
 
         // Confirmed date
         if (appt.getConfirmedDate() != null) {
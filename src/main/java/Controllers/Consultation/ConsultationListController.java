@@ -11,19 +11,18 @@ import javafx.scene.layout.*;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import models.Consultation;
+import models.ConsultationSummary;
 import models.Client;
-import models.AppointmentRequest;
 import service.ConsultationService;
 import service.ClientService;
-import service.AppointmentRequestService;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.stream.Collectors;
 
 public class ConsultationListController implements Initializable {
 
@@ -38,9 +37,8 @@ public class ConsultationListController implements Initializable {
 
     private final ConsultationService       consultationService = new ConsultationService();
     private final ClientService             clientService       = new ClientService();
-    private final AppointmentRequestService appointmentService  = new AppointmentRequestService();
 
-    private List<Consultation> consultations;
+    private List<ConsultationSummary> consultations;
 
     private static final DateTimeFormatter DATE_FMT =
             DateTimeFormatter.ofPattern("dd MMM yyyy");
@@ -54,9 +52,10 @@ public class ConsultationListController implements Initializable {
 
     // ─── DATA LOADING ───────────────────────────────────────────────
 
+    // Cards use the summary projection; the full consultation is loaded only when editing
     private void loadConsultations() {
         try {
-            consultations = consultationService.getConsultationsByDoctorId(DOCTOR_ID);
+            consultations = consultationService.getSummariesByDoctorId(DOCTOR_ID, null);
         } catch (SQLException e) {
             consultations = List.of();
             System.err.println("[ConsultationListController] Load error: " + e.getMessage());
@@ -68,15 +67,17 @@ public class ConsultationListController implements Initializable {
 
     @FXML
     private void handleSearch() {
-        String q = searchField.getText() == null ? "" : searchField.getText().toLowerCase().trim();
-        List<Consultation> filtered = consultations.stream()
-                .filter(c -> q.isEmpty()
-                        || c.getDiagnosis().toLowerCase().contains(q)
-                        || (c.getNotes() != null && c.getNotes().toLowerCase().contains(q))
-                        || (c.getPrescription() != null && c.getPrescription().toLowerCase().contains(q))
-                        || String.valueOf(c.getClientId()).contains(q))
-                .collect(Collectors.toList());
-        renderCards(filtered);
+        String q = searchField.getText() == null ? "" : searchField.getText().trim();
+        if (q.isEmpty()) {
+            renderCards(consultations);
+            return;
+        }
+        // Notes and prescription are not in the summaries, so the match runs in SQL
+        try {
+            renderCards(consultationService.getSummariesByDoctorId(DOCTOR_ID, q));
+        } catch (SQLException e) {
+            System.err.println("[ConsultationListController] Search error: " + e.getMessage());
+        }
     }
 
     @FXML
@@ -87,7 +88,7 @@ public class ConsultationListController implements Initializable {
 
     // ─── RENDERING ──────────────────────────────────────────────────
 
-    private void renderCards(List<Consultation> list) {
+    private void renderCards(List<ConsultationSummary> list) {
         cardsContainer.getChildren().removeIf(n -> n instanceof HBox);
 
         statsCount.setText(String.valueOf(list.size()));
@@ -103,14 +104,19 @@ public class ConsultationListController implements Initializable {
         emptyState.setVisible(false);
         emptyState.setManaged(false);
 
-        for (Consultation c : list) {
-            Client client = fetchClient(c.getClientId());
-            String apptType = fetchAppointmentType(c.getAppointmentRequestId());
+        // Every client the screen needs in one batched lookup; the appointment type
+        // already came with the summaries
+        Map<Long, Client> clients = fetchClients(
+                list.stream().map(ConsultationSummary::getClientId).toList());
+
+        for (ConsultationSummary c : list) {
+            Client client = clients.get(c.getClientId());
+            String apptType = c.getAppointmentType() != null ? c.getAppointmentType() : "—";
             cardsContainer.getChildren().add(buildCard(c, client, apptType));
         }
     }
 
-    private HBox buildCard(Consultation c, Client client, String apptType) {
+    private HBox buildCard(ConsultationSummary c, Client client, String apptType) {
 
         VBox strip = createStrip();
         VBox infoBox = createInfoBox(c, client, apptType);
@@ -133,7 +139,7 @@ public class ConsultationListController implements Initializable {
         return strip;
     }
 
-    private VBox createInfoBox(Consultation c, Client client, String apptType) {
+    private VBox createInfoBox(ConsultationSummary c, Client client, String apptType) {
         String fullName = client != null ? client.getFullname().trim() : "Client #" + c.getClientId();
         String email = client != null && client.getEmail() != null ? client.getEmail() : "—";
         String phone = client != null && client.getPhone() != null ? client.getPhone() : "—";
@@ -172,7 +178,7 @@ public class ConsultationListController implements Initializable {
         return contactRow;
     }
 
-    private HBox createDateRow(Consultation c) {
+    private HBox createDateRow(ConsultationSummary c) {
         Label calIcon = new Label("📅");
         calIcon.setStyle("-fx-font-size: 12;");
         Label dateLabel = new Label(
@@ -187,13 +193,10 @@ public class ConsultationListController implements Initializable {
         return dateRow;
     }
 
-    private HBox createDiagnosisRow(Consultation c) {
+    private HBox createDiagnosisRow(ConsultationSummary c) {
         Label diagIcon = new Label("🔬");
         diagIcon.setStyle("-fx-font-size: 11;");
-        String diagText = c.getDiagnosis().length() > 80
-                ? c.getDiagnosis().substring(0, 80) + "…"
-                : c.getDiagnosis();
-        Label diagLabel = new Label(diagText);
+        Label diagLabel = new Label(c.getDiagnosisExcerpt());
         diagLabel.getStyleClass().add("meta-label");
 
         HBox diagRow = new HBox(6, diagIcon, diagLabel);
@@ -201,13 +204,13 @@ public class ConsultationListController implements Initializable {
         return diagRow;
     }
 
-    private HBox createMetaRow(Consultation c) {
+    private HBox createMetaRow(ConsultationSummary c) {
         HBox metaRow = new HBox(20, metaChip("🗓", "Created " + c.getCreationDate().format(DATE_FMT)));
         metaRow.setAlignment(Pos.CENTER_LEFT);
         return metaRow;
     }
 
-    private VBox createActionBox(Consultation c) {
+    private VBox createActionBox(ConsultationSummary c) {
         Button editBtn = new Button("✏  Edit");
         editBtn.getStyleClass().addAll("btn", "btn-accent");
         editBtn.setMinWidth(100);
@@ -226,7 +229,7 @@ public class ConsultationListController implements Initializable {
 
     // ─── ACTIONS ────────────────────────────────────────────────────
 
-    private void handleDelete(Consultation c) {
+    private void handleDelete(ConsultationSummary c) {
         Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
         confirm.setTitle("Delete Consultation");
         confirm.setHeaderText("Delete this consultation?");
@@ -244,8 +247,10 @@ public class ConsultationListController implements Initializable {
         });
     }
 
-    private void openEditForm(Consultation c) {
+    private void openEditForm(ConsultationSummary summary) {
         try {
+            Consultation c = consultationService.getById(summary.getId());
+
             FXMLLoader loader = new FXMLLoader(
                     getClass().getResource("/fxml/consultationview/EditConsultation.fxml"));
             Parent root = loader.load();
@@ -263,27 +268,19 @@ public class ConsultationListController implements Initializable {
 
             loadConsultations();
 
-        } catch (IOException e) {
+        } catch (IOException | SQLException | IllegalArgumentException e) {
             System.err.println("[ConsultationListController] Edit dialog error: " + e.getMessage());
         }
     }
 
     // ─── HELPERS ────────────────────────────────────────────────────
 
-    private Client fetchClient(long clientId) {
-        try {
-            return clientService.getById(clientId);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private String fetchAppointmentType(long appointmentId) {
+    private Map<Long, Client> fetchClients(List<Long> clientIds) {
         try {
-            AppointmentRequest appt = appointmentService.getById(appointmentId);
-            return appt.getType();
-        } catch (Exception e) {
-            return "—";
+            return clientService.getByIds(clientIds);
+        } catch (SQLException e) {
+            System.err.println("[ConsultationListController] Client fetch error: " + e.getMessage());
+            return Map.of();
         }
     }
 
@@ -15,14 +15,15 @@ import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import models.AppointmentRequest;
+import models.AppointmentTimeline;
 import models.Client;
 import service.AppointmentRequestService;
-import service.ClientService;
 
 import java.io.IOException;
 import java.net.URL;
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
@@ -41,8 +42,7 @@ public class DoctorConsultationsController implements Initializable {
     @FXML private Label     subtitleLabel;
     @FXML private Label     statsCount;
 
-    private final AppointmentRequestService service       = new AppointmentRequestService();
-    private final ClientService             clientService = new ClientService();
+    private final AppointmentRequestService service = new AppointmentRequestService();
 
     private List<AppointmentRequest> appointments;
 
@@ -56,10 +56,14 @@ public class DoctorConsultationsController implements Initializable {
     // ── CHANGE 2: extracted filter constants so the stream is readable ──
     private void loadAppointments() {
         try {
-            appointments = service.getAllAppointments().stream()
-                    .filter(a -> a.getDoctorId() == DOCTOR_ID)
-                    .filter(a -> "CONFIRMED".equals(a.getStatus()))
-                    .collect(Collectors.toList());
+            // The doctor's snapshot (clients attached) is kept up to date by the service,
+            // so reloading after each consultation is served from memory; only the confirmed
+            // rows are materialized
+            AppointmentTimeline timeline = service.getTimeline(DOCTOR_ID);
+            int[] rows = timeline.rowsWithStatus("CONFIRMED");
+            appointments = new ArrayList<>(rows.length);
+            for (int row : rows)
+                appointments.add(timeline.get(row));
         } catch (SQLException e) {
             appointments = List.of();
             System.err.println("[DoctorConsultations] Load error: " + e.getMessage());
@@ -99,22 +103,8 @@ public class DoctorConsultationsController implements Initializable {
         emptyState.setVisible(empty);
         emptyState.setManaged(empty);   // ── CHANGE 4: collapsed 4 lines into 2
 
-        if (!empty) {
-            list.forEach(appt -> {
-                Client client = fetchClient(appt.getClientId()); // ── CHANGE 5: extracted to method
-                cardsContainer.getChildren().add(buildCard(appt, client));
-            });
-        }
-    }
-
-    // ── CHANGE 5: client fetch extracted — keeps renderCards() clean ──
-    private Client fetchClient(long clientId) {
-        try {
-            return clientService.getById(clientId);
-        } catch (Exception e) {
-            System.err.println("[DoctorConsultations] Client fetch error: " + e.getMessage());
-            return null;
-        }
+        if (!empty)
+            list.forEach(appt -> cardsContainer.getChildren().add(buildCard(appt, appt.getClient())));
     }
 
     // ─────────────────────────────────────────────────────────────
@@ -6,12 +6,18 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import models.AppointmentRequest;
+import repository.AppointmentRequestRepository.Expand;
 import service.AppointmentRequestService;
+import util.KeysetCursor;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class AppointmentHandler implements HttpHandler {
 
@@ -37,6 +43,10 @@ public class AppointmentHandler implements HttpHandler {
                 case "DELETE" -> handleDelete(exchange, path);
                 default       -> sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
             }
+        } catch (IOException e) {
+            if (JsonResponse.started(exchange))
+                throw e; // body under way (or client gone): let the server drop the connection
+            sendResponse(exchange, 500, "{\"error\":\"Unexpected error: " + e.getMessage() + "\"}");
         } catch (SQLException e) {
             sendResponse(exchange, 500, "{\"error\":\"Database error: " + e.getMessage() + "\"}");
         } catch (IllegalArgumentException e) {
@@ -46,15 +56,62 @@ public class AppointmentHandler implements HttpHandler {
         }
     }
 
-    // ─── GET /api/appointments        → all
-    // ─── GET /api/appointments/{id}   → one
+    // ─── GET /api/appointments        → one page, newest first
+    //         ?limit=50&after=<cursor>  optional doctorId= or clientId= filter
+    //         ?expand=client,doctor     embed those rows (same single query)
+    // ─── GET /api/appointments/export → every row, streamed as one JSON array
+    // ─── GET /api/appointments/stats?doctorId= → {"PENDING":3,"CONFIRMED":7,...}
+    // ─── GET /api/appointments/{id}   → one (?expand= works here too)
+    // Pages and single appointments carry an ETag and answer If-None-Match with 304,
+    // except with ?expand=: user rows have no version to derive a strong tag from.
     private void handleGet(HttpExchange exchange, String path) throws SQLException, IOException {
-        if (isCollectionPath(path)) {
-            sendResponse(exchange, 200, mapper.writeValueAsString(service.getAllAppointments()));
+        if (isStatsPath(path)) {
+            Long doctorId = new QueryParams(exchange.getRequestURI()).getLong("doctorId");
+            if (doctorId == null)
+                throw new IllegalArgumentException("doctorId is required.");
+            JsonResponse.send(exchange, mapper, 200, service.countByStatus(doctorId));
+        } else if (isExportPath(path)) {
+            try (Stream<AppointmentRequest> rows = service.streamAllAppointments()) {
+                JsonResponse.sendArray(exchange, mapper, rows);
+            }
+        } else if (isCollectionPath(path)) {
+            QueryParams query = new QueryParams(exchange.getRequestURI());
+            KeysetCursor after = KeysetCursor.decode(query.get("after"));
+            int limit = query.getInt("limit", AppointmentRequestService.DEFAULT_PAGE_SIZE);
+            Long doctorId = query.getLong("doctorId");
+            Long clientId = query.getLong("clientId");
+            Set<Expand> expand = parseExpand(query);
+
+            if (expand.isEmpty()) {
+                long[] fp = service.fingerprintAppointmentsPage(doctorId, clientId, after, limit);
+                String tag = EntityTags.of("p" + Long.toHexString(fp[0]) + "."
+                        + Long.toHexString(fp[1]) + "." + Long.toHexString(fp[2]));
+                if (EntityTags.notModified(exchange, tag))
+                    return;
+            }
+
+            // Rows go from the result set to the socket one at a time
+            try (Stream<AppointmentRequest> rows =
+                         service.streamAppointmentsPage(doctorId, clientId, after, limit, expand)) {
+                JsonResponse.sendPage(exchange, mapper, rows, limit,
+                        a -> new KeysetCursor(a.getCreationDate(), a.getId()));
+            }
         } else {
             long id = extractId(path);
-            AppointmentRequest app = service.getById(id);
-            sendResponse(exchange, 200, mapper.writeValueAsString(app));
+            QueryParams query = new QueryParams(exchange.getRequestURI());
+            AppointmentRequest app;
+            if (query.has("expand")) {
+                app = service.getEnrichedById(id, parseExpand(query));
+            } else {
+                // Version first: an unchanged appointment costs one primary-key lookup
+                Long version = service.getVersion(id);
+                if (version == null)
+                    throw new IllegalArgumentException("Appointment not found with id: " + id);
+                if (EntityTags.notModified(exchange, EntityTags.of("a" + id + "." + version)))
+                    return;
+                app = service.getById(id);
+            }
+            JsonResponse.send(exchange, mapper, 200, app);
         }
     }
 
@@ -62,7 +119,7 @@ public class AppointmentHandler implements HttpHandler {
     private void handlePost(HttpExchange exchange) throws SQLException, IOException {
         AppointmentRequest app = mapper.readValue(exchange.getRequestBody(), AppointmentRequest.class);
         AppointmentRequest created = service.createAppointment(app);
-        sendResponse(exchange, 201, mapper.writeValueAsString(created));
+        JsonResponse.send(exchange, mapper, 201, created);
     }
 
     // ─── PUT /api/appointments/{id}
@@ -71,7 +128,7 @@ public class AppointmentHandler implements HttpHandler {
         AppointmentRequest app = mapper.readValue(exchange.getRequestBody(), AppointmentRequest.class);
         app.setId(id);
         service.updateAppointment(app);
-        sendResponse(exchange, 200, mapper.writeValueAsString(app));
+        JsonResponse.send(exchange, mapper, 200, app);
     }
 
     // ─── DELETE /api/appointments/{id}
@@ -88,6 +145,32 @@ public class AppointmentHandler implements HttpHandler {
         return path.replaceAll("/$", "").equals("/api/appointments");
     }
 
+    private boolean isStatsPath(String path) {
+        return path.replaceAll("/$", "").equals("/api/appointments/stats");
+    }
+
+    private boolean isExportPath(String path) {
+        return path.replaceAll("/$", "").equals("/api/appointments/export");
+    }
+
+    // "client,doctor" → {CLIENT, DOCTOR}; anything else is a 400
+    private Set<Expand> parseExpand(QueryParams query) {
+        Set<Expand> expand = EnumSet.noneOf(Expand.class);
+        String value = query.get("expand");
+        if (value == null || value.isBlank())
+            return expand;
+        for (String part : value.split(",")) {
+            if (part.isBlank())
+                continue;
+            try {
+                expand.add(Expand.valueOf(part.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown expand value: " + part.trim());
+            }
+        }
+        return expand;
+    }
+
     private long extractId(String path) {
         String[] parts = path.split("/");
         try {
@@ -97,7 +180,10 @@ public class AppointmentHandler implements HttpHandler {
         }
     }
 
+    // Fixed messages only; serialized values go through JsonResponse
     private void sendResponse(HttpExchange exchange, int status, String body) throws IOException {
+        if (status >= 400)
+            exchange.getResponseHeaders().remove("ETag"); // set before the query that failed
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
         exchange.getResponseHeaders().set("Content-Type", "application/json");
         exchange.sendResponseHeaders(status, bytes.length);
@@ -105,4 +191,4 @@ public class AppointmentHandler implements HttpHandler {
             os.write(bytes);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package handler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import util.CacheRegistry;
+import util.CacheStats;
+import util.DBconnection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runtime view of the in-process caches (see CacheRegistry), the connection pool and
+ * response compression, plus per-cache flush. There is no authentication, so only local callers are served.
+ */
+public class CacheAdminHandler implements HttpHandler {
+
+    private static final String BASE = "/api/admin/caches";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path   = exchange.getRequestURI().getPath().replaceAll("/$", "");
+
+        if (!exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+            sendResponse(exchange, 403, "{\"error\":\"Admin endpoints are local only\"}");
+            return;
+        }
+
+        try {
+            switch (method) {
+                case "GET"    -> handleGet(exchange, path);
+                case "DELETE" -> handleDelete(exchange, path);
+                default       -> sendResponse(exchange, 405, "{\"error\":\"Method not allowed\"}");
+            }
+        } catch (Exception e) {
+            sendResponse(exchange, 500, "{\"error\":\"Unexpected error: " + e.getMessage() + "\"}");
+        }
+    }
+
+    // ─── GET /api/admin/caches        → {"caches":[...], "pool":{...}, "compression":{...}}
+    // ─── GET /api/admin/caches/{name} → one cache
+    private void handleGet(HttpExchange exchange, String path) throws IOException {
+        if (path.equals(BASE)) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("caches", CacheRegistry.getStats());
+            // Includes the per-connection statement cache counters
+            body.put("pool", DBconnection.getInstance().getPoolStats());
+            // Raw vs wire bytes and the time compression added per response
+            body.put("compression", CompressedBody.getStats());
+            sendResponse(exchange, 200, mapper.writeValueAsString(body));
+            return;
+        }
+
+        CacheStats stats = CacheRegistry.getStats(cacheName(path));
+        if (stats == null)
+            sendResponse(exchange, 404, "{\"error\":\"Unknown cache\"}");
+        else
+            sendResponse(exchange, 200, mapper.writeValueAsString(stats));
+    }
+
+    // ─── DELETE /api/admin/caches        → flush every cache
+    // ─── DELETE /api/admin/caches/{name} → flush one
+    private void handleDelete(HttpExchange exchange, String path) throws IOException {
+        if (path.equals(BASE)) {
+            CacheRegistry.flushAll();
+            sendResponse(exchange, 200, "{\"message\":\"All caches flushed\"}");
+        } else if (CacheRegistry.flush(cacheName(path))) {
+            sendResponse(exchange, 200, "{\"message\":\"Cache flushed\"}");
+        } else {
+            sendResponse(exchange, 404, "{\"error\":\"Unknown cache\"}");
+        }
+    }
+
+    // ─── Utilities ───────────────────────────────────────────────
+
+    private String cacheName(String path) {
+        return path.startsWith(BASE + "/") ? path.substring(BASE.length() + 1) : "";
+    }
+
+    private void sendResponse(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package handler;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response body that negotiates gzip/deflate with the client's Accept-Encoding and
+ * compresses as it is written, without buffering the whole body.
+ *
+ * The first {@code http.compression.minBytes} bytes are held back: a body that ends
+ * within them is sent as is with a fixed length (compressing it would cost more than
+ * it saves); anything longer goes out chunked, compressed when the client accepts
+ * it. Headers are only sent at that point, so until then the handler can still
+ * change its mind (see {@link #abandon()}).
+ *
+ * Tunable with -Dhttp.compression.enabled (default true), -Dhttp.compression.minBytes
+ * (1024) and -Dhttp.compression.level (1–9, default 6).
+ */
+final class CompressedBody extends OutputStream {
+
+    private static final boolean ENABLED   =
+            Boolean.parseBoolean(System.getProperty("http.compression.enabled", "true"));
+    private static final int     MIN_BYTES = Integer.getInteger("http.compression.minBytes", 1_024);
+    private static final int     LEVEL     =
+            Math.max(1, Math.min(9, Integer.getInteger("http.compression.level", 6)));
+
+    // ── Metrics (all responses sent through this class) ──────────
+    private static final AtomicLong responses     = new AtomicLong();
+    private static final AtomicLong compressed    = new AtomicLong();
+    private static final AtomicLong rawBytes      = new AtomicLong();
+    private static final AtomicLong wireBytes     = new AtomicLong();
+    private static final AtomicLong compressNanos = new AtomicLong();
+
+    private final HttpExchange exchange;
+    private final int status;
+    private final String encoding; // null when the client accepts neither
+    private final ByteArrayOutputStream pending;
+
+    private WireCounter wire;
+    private OutputStream out;      // null until headers are sent
+    private Deflater deflater;     // ours to end(), for deflate only
+    private long raw;
+    private long nanos;            // time spent in write/close on the compressing path
+    private boolean closed;
+
+    private CompressedBody(HttpExchange exchange, int status, String encoding) {
+        this.exchange = exchange;
+        this.status   = status;
+        this.encoding = encoding;
+        this.pending  = new ByteArrayOutputStream(Math.min(MIN_BYTES, 8_192));
+    }
+
+    /** Body for a response with the given status; set Content-Type before writing. */
+    static CompressedBody open(HttpExchange exchange, int status) {
+        if (ENABLED)
+            exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        return new CompressedBody(exchange, status, encodingFor(exchange));
+    }
+
+    /** The coding a large body for this request would be sent with; null for identity. */
+    static String encodingFor(HttpExchange exchange) {
+        return ENABLED ? negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding")) : null;
+    }
+
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // ─── OutputStream ───────────────────────────────────────────
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Response body already closed.");
+        raw += len;
+        if (out == null) {
+            if (pending.size() + len <= MIN_BYTES) {
+                pending.write(b, off, len);
+                return;
+            }
+            start(encoding);
+        }
+        long t0 = System.nanoTime();
+        out.write(b, off, len);
+        nanos += System.nanoTime() - t0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null)
+            out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            if (out == null) {
+                // Whole body fit under the threshold: one fixed-length, uncompressed response
+                byte[] body = pending.toByteArray();
+                exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(body);
+                }
+                record(false, body.length, body.length, 0);
+                return;
+            }
+            long t0 = System.nanoTime();
+            out.close();
+            nanos += System.nanoTime() - t0;
+            record(encoding != null, raw, wire.count, encoding != null ? Math.max(0, nanos - wire.nanos) : 0);
+        } finally {
+            if (deflater != null)
+                deflater.end();
+        }
+    }
+
+    /**
+     * Gives up on the body after a failure. Returns true if nothing was sent yet, so
+     * the caller can still answer with an error status instead. (A gzip stream's own
+     * deflater is left to its cleaner; only an explicitly created one is ended here.)
+     */
+    boolean abandon() {
+        closed = true;
+        if (deflater != null)
+            deflater.end();
+        return out == null;
+    }
+
+    // ─── Internals ──────────────────────────────────────────────
+
+    private void start(String coding) throws IOException {
+        if (coding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", coding);
+            // Only now is it certain the body is compressed, so only now does its tag say so
+            String tag = exchange.getResponseHeaders().getFirst("ETag");
+            if (tag != null)
+                exchange.getResponseHeaders().set("ETag", EntityTags.withCoding(tag, coding));
+        }
+        exchange.sendResponseHeaders(status, 0); // chunked
+        wire = new WireCounter(exchange.getResponseBody());
+
+        if ("gzip".equals(coding)) {
+            out = new GZIPOutputStream(wire, 8_192) {
+                { def.setLevel(LEVEL); }
+            };
+        } else if ("deflate".equals(coding)) {
+            deflater = new Deflater(LEVEL); // zlib-wrapped, which is what HTTP "deflate" means
+            out = new DeflaterOutputStream(wire, deflater, 8_192);
+        } else {
+            out = wire;
+        }
+
+        if (pending.size() > 0) {
+            long t0 = System.nanoTime();
+            pending.writeTo(out);
+            nanos += System.nanoTime() - t0;
+            pending.reset();
+        }
+    }
+
+    /**
+     * Picks gzip, else deflate, from an Accept-Encoding header; null for identity.
+     * Honours q-values, including {@code q=0} exclusions and {@code *}.
+     */
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank())
+            return null;
+        double gzip = 0, deflate = 0, any = -1;
+        boolean gzipListed = false, deflateListed = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String p = params[i].trim();
+                if (p.startsWith("q=") || p.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(p.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case "gzip", "x-gzip" -> { gzip = q; gzipListed = true; }
+                case "deflate"        -> { deflate = q; deflateListed = true; }
+                case "*"              -> any = q;
+                default               -> { }
+            }
+        }
+        if (!gzipListed && any > 0)    gzip = any;
+        if (!deflateListed && any > 0) deflate = any;
+        if (gzip > 0 && gzip >= deflate) return "gzip";
+        if (deflate > 0)                 return "deflate";
+        return null;
+    }
+
+    private static void record(boolean didCompress, long rawCount, long wireCount, long compressionNanos) {
+        responses.incrementAndGet();
+        if (didCompress)
+            compressed.incrementAndGet();
+        rawBytes.addAndGet(rawCount);
+        wireBytes.addAndGet(wireCount);
+        compressNanos.addAndGet(compressionNanos);
+    }
+
+    static Stats getStats() {
+        return new Stats(ENABLED, MIN_BYTES, LEVEL, responses.get(), compressed.get(),
+                rawBytes.get(), wireBytes.get(), compressNanos.get());
+    }
+
+    // Counts what actually reaches the socket, and the time spent writing it,
+    // so that time can be taken out of the compression figure
+    private static final class WireCounter extends FilterOutputStream {
+        private long count;
+        private long nanos;
+
+        WireCounter(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long t0 = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - t0;
+            count += len;
+        }
+    }
+
+    // ─── STATS ──────────────────────────────────────────────────
+
+    public static class Stats {
+        private final boolean enabled;
+        private final int     minBytes;
+        private final int     level;
+        private final long    responses;
+        private final long    compressed;
+        private final long    rawBytes;
+        private final long    wireBytes;
+        private final long    compressNanos;
+
+        Stats(boolean enabled, int minBytes, int level, long responses, long compressed,
+              long rawBytes, long wireBytes, long compressNanos) {
+            this.enabled       = enabled;
+            this.minBytes      = minBytes;
+            this.level         = level;
+            this.responses     = responses;
+            this.compressed    = compressed;
+            this.rawBytes      = rawBytes;
+            this.wireBytes     = wireBytes;
+            this.compressNanos = compressNanos;
+        }
+
+        public boolean isEnabled()  { return enabled; }
+        public int  getMinBytes()   { return minBytes; }
+        public int  getLevel()      { return level; }
+        public long getResponses()  { return responses; }
+        public long getCompressed() { return compressed; }
+        public long getRawBytes()   { return rawBytes; }
+        public long getWireBytes()  { return wireBytes; }
+
+        /** Wire bytes as a fraction of raw bytes; 1.0 before anything was sent. */
+        public double getRatio() {
+            return rawBytes == 0 ? 1.0 : (double) wireBytes / rawBytes;
+        }
+
+        /** Total CPU-side time spent compressing, socket writes excluded. */
+        public double getCompressMillis() {
+            return compressNanos / 1_000_000.0;
+        }
+
+        /** Average time compression added to each compressed response. */
+        public double getAvgCompressMillis() {
+            return compressed == 0 ? 0 : compressNanos / 1_000_000.0 / compressed;
+        }
+    }
+}
@@ -1,21 +1,30 @@
 package handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import models.Consultation;
+import service.AppointmentRequestService;
 import service.ConsultationService;
+import util.KeysetCursor;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.stream.Stream;
 
 public class ConsultationHandler implements HttpHandler {
 
     private final ConsultationService service = new ConsultationService();
-    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
@@ -31,6 +40,10 @@ public class ConsultationHandler implements HttpHandler {
                 case "DELETE" -> handleDelete(exchange, path);
                 default       -> send(exchange, 405, "{\"error\":\"Method not allowed\"}");
             }
+        } catch (IOException e) {
+            if (JsonResponse.started(exchange))
+                throw e; // body under way (or client gone): let the server drop the connection
+            send(exchange, 400, "{\"error\":\"" + e.getMessage() + "\"}");
         } catch (SQLException e) {
             send(exchange, 500, "{\"error\":\"Database error: " + e.getMessage() + "\"}");
         } catch (Exception e) {
@@ -38,30 +51,84 @@ public class ConsultationHandler implements HttpHandler {
         }
     }
 
+    // ─── GET /api/consultations        → one page, newest first on (consultationDate, id)
+    //         ?limit=50&after=<cursor>   optional doctorId=, clientId=, from=, to= filters;
+    //                                    from/to take 2024-05-01 or 2024-05-01T09:30,
+    //                                    a bare "to" date includes that whole day
+    // ─── GET /api/consultations/export → every row, streamed as one JSON array
+    // ─── GET /api/consultations/{id}   → one
     private void handleGet(HttpExchange ex, String path) throws Exception {
-        send(ex, 200, mapper.writeValueAsString(service.getAllConsultations()));
+        String route = path.replaceAll("/$", "");
+        if (route.equals("/api/consultations/export")) {
+            try (Stream<Consultation> rows = service.streamAllConsultations()) {
+                JsonResponse.sendArray(ex, mapper, rows);
+            }
+        } else if (route.equals("/api/consultations")) {
+            QueryParams query = new QueryParams(ex.getRequestURI());
+            int limit = query.getInt("limit", AppointmentRequestService.DEFAULT_PAGE_SIZE);
+            try (Stream<Consultation> rows = service.streamConsultationsPage(
+                    query.getLong("doctorId"),
+                    query.getLong("clientId"),
+                    parseBound(query, "from", false),
+                    parseBound(query, "to", true),
+                    KeysetCursor.decode(query.get("after")),
+                    limit)) {
+                JsonResponse.sendPage(ex, mapper, rows, limit,
+                        c -> new KeysetCursor(c.getConsultationDate(), c.getId()));
+            }
+        } else {
+            JsonResponse.send(ex, mapper, 200, service.getById(extractId(path)));
+        }
     }
 
     private void handlePost(HttpExchange ex) throws Exception {
         Consultation c = mapper.readValue(ex.getRequestBody(), Consultation.class);
         Consultation created = service.createConsultation(c);
-        send(ex, 201, mapper.writeValueAsString(created));
+        JsonResponse.send(ex, mapper, 201, created);
     }
 
     private void handlePut(HttpExchange ex, String path) throws Exception {
-        long id = Long.parseLong(path.substring(path.lastIndexOf("/") + 1));
+        long id = extractId(path);
         Consultation c = mapper.readValue(ex.getRequestBody(), Consultation.class);
         c.setId(id);
         service.updateConsultation(c);
-        send(ex, 200, mapper.writeValueAsString(c));
+        JsonResponse.send(ex, mapper, 200, c);
     }
 
     private void handleDelete(HttpExchange ex, String path) throws Exception {
-        long id = Long.parseLong(path.substring(path.lastIndexOf("/") + 1));
+        long id = extractId(path);
         service.deleteConsultation(id);
         send(ex, 200, "{\"message\":\"Deleted\"}");
     }
 
+    // ─── Utilities ───────────────────────────────────────────────
+
+    // A date-time is taken as is; a bare date means its start of day, or for an
+    // exclusive upper bound the start of the next day, so to=2024-05-31 includes the 31st.
+    private LocalDateTime parseBound(QueryParams query, String name, boolean upper) {
+        String value = query.get(name);
+        if (value == null || value.isBlank())
+            return null;
+        try {
+            if (value.contains("T"))
+                return LocalDateTime.parse(value.trim());
+            LocalDate day = LocalDate.parse(value.trim());
+            return (upper ? day.plusDays(1) : day).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private long extractId(String path) {
+        String[] parts = path.split("/");
+        try {
+            return Long.parseLong(parts[parts.length - 1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ID in path: " + parts[parts.length - 1]);
+        }
+    }
+
+    // Fixed messages only; serialized values go through JsonResponse
     private void send(HttpExchange ex, int status, String body) throws IOException {
         byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
         ex.getResponseHeaders().set("Content-Type", "application/json");
@@ -70,4 +137,4 @@ public class ConsultationHandler implements HttpHandler {
             os.write(bytes);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package handler;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * Strong ETags and If-None-Match handling for the API handlers.
+ *
+ * Tags are built from row versions (or a fingerprint of them) that the caller reads
+ * with one cheap query, so an unchanged resource answers 304 before its child rows are
+ * loaded or anything is serialized. A gzip and an identity body of the same resource
+ * are different bytes, so the tag names the coding actually used: {@link CompressedBody}
+ * appends it (e.g. {@code "a12.3-gzip"}) only when it does compress, and a body small
+ * enough to go out as identity keeps the bare tag.
+ */
+final class EntityTags {
+
+    private EntityTags() {}
+
+    /** A strong tag for {@code value}, as sent with an identity body. */
+    static String of(String value) {
+        return "\"" + value + "\"";
+    }
+
+    /** {@code tag} for the same resource sent with the given content coding. */
+    static String withCoding(String tag, String coding) {
+        return tag.substring(0, tag.length() - 1) + "-" + coding + "\"";
+    }
+
+    /**
+     * Answers 304 and returns true when the request's If-None-Match matches {@code tag},
+     * in either coding the client could have been sent; otherwise sets the ETag header for
+     * the response about to be sent and returns false.
+     */
+    static boolean notModified(HttpExchange exchange, String tag) throws IOException {
+        String coding = CompressedBody.encodingFor(exchange);
+        String matched = match(exchange.getRequestHeaders().getFirst("If-None-Match"),
+                tag, coding != null ? withCoding(tag, coding) : null);
+        if (matched == null) {
+            exchange.getResponseHeaders().set("ETag", tag);
+            return false;
+        }
+
+        exchange.getResponseHeaders().set("ETag", matched);
+        if (CompressedBody.isEnabled())
+            exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    // If-None-Match uses weak comparison: a W/ prefix on the client's tag is ignored.
+    // Returns the tag that matched (the bare one for "*"), or null.
+    private static String match(String ifNoneMatch, String tag, String codedTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank())
+            return null;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*"))
+                return tag;
+            if (c.startsWith("W/"))
+                c = c.substring(2);
+            if (c.equals(tag) || c.equals(codedTag))
+                return c;
+        }
+        return null;
+    }
+}
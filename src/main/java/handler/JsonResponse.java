@@ -0,0 +1,144 @@
+package handler;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+import util.KeysetCursor;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Writes JSON bodies straight onto the exchange with chunked transfer, instead of
+ * building a String and a byte[] copy of it first. Bodies go through
+ * {@link CompressedBody}, so they are gzip/deflate-compressed as they are written.
+ * Rows from a stream are serialized one at a time, so a response never holds more
+ * than the generator's buffer.
+ *
+ * The flip side: a database-backed stream keeps its pooled connection until the last
+ * row is on the socket, so a slow client holds a connection for as long as it takes
+ * to read. Pages are capped at MAX_PAGE_SIZE rows, which limits how much there is to
+ * read but not how slowly; full-list responses ({@link #sendArray}) hold theirs for
+ * the whole export, so keep db.pool.maxSize above the number of concurrent exports.
+ *
+ * Headers go out before the first byte of body, so a failure after that point can
+ * only be signalled by dropping the connection: the send methods then throw an
+ * IOException, which handlers must let through ({@link #started}). Callers open their
+ * streams (run the query) before calling in, so database errors still answer 500. The
+ * generator is deliberately not closed on failure: closing would append the missing
+ * brackets and turn a truncated list into valid-looking JSON.
+ */
+final class JsonResponse {
+
+    private JsonResponse() {}
+
+    /** One value, serialized directly onto the response body. */
+    static void send(HttpExchange exchange, ObjectMapper mapper, int status, Object value) throws IOException {
+        CompressedBody body = start(exchange, status);
+        JsonGenerator gen = mapper.getFactory().createGenerator(body);
+        try {
+            rowWriter(mapper).writeValue(gen, value);
+            gen.close();
+        } catch (JsonProcessingException | RuntimeException e) {
+            abort(exchange, body, e);
+        }
+    }
+
+    /** Every row of the stream as one JSON array. */
+    static void sendArray(HttpExchange exchange, ObjectMapper mapper, Stream<?> rows) throws IOException {
+        CompressedBody body = start(exchange, 200);
+        ObjectWriter writer = rowWriter(mapper);
+        JsonGenerator gen = mapper.getFactory().createGenerator(body);
+        try {
+            gen.writeStartArray();
+            Iterator<?> it = rows.iterator();
+            while (it.hasNext())
+                writer.writeValue(gen, it.next());
+            gen.writeEndArray();
+            gen.close();
+        } catch (JsonProcessingException | RuntimeException e) {
+            abort(exchange, body, e);
+        }
+    }
+
+    /**
+     * A keyset page in the same shape as {@link models.Page}:
+     * {@code {"items":[...],"nextCursor":"...","hasMore":true}}. {@code rows} holds up to
+     * {@code limit + 1} rows (the extra one only signals that another page exists);
+     * the cursor is taken from the last row written.
+     */
+    static <T> void sendPage(HttpExchange exchange, ObjectMapper mapper, Stream<T> rows, int limit,
+                             Function<? super T, KeysetCursor> cursorOf) throws IOException {
+        CompressedBody body = start(exchange, 200);
+        ObjectWriter writer = rowWriter(mapper);
+        JsonGenerator gen = mapper.getFactory().createGenerator(body);
+        try {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("items");
+            T last = null;
+            int written = 0;
+            boolean hasMore = false;
+            Iterator<T> it = rows.iterator();
+            while (it.hasNext()) {
+                T row = it.next();
+                if (written == limit) {
+                    hasMore = true;
+                    break;
+                }
+                writer.writeValue(gen, row);
+                last = row;
+                written++;
+            }
+            gen.writeEndArray();
+            gen.writeStringField("nextCursor", hasMore ? cursorOf.apply(last).encode() : null);
+            gen.writeBooleanField("hasMore", hasMore);
+            gen.writeEndObject();
+            gen.close();
+        } catch (JsonProcessingException | RuntimeException e) {
+            abort(exchange, body, e);
+        }
+    }
+
+    // ─── Utilities ───────────────────────────────────────────────
+
+    private static CompressedBody start(HttpExchange exchange, int status) {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        return CompressedBody.open(exchange, status);
+    }
+
+    // Flushing after every row would turn each one into its own chunk
+    private static ObjectWriter rowWriter(ObjectMapper mapper) {
+        return mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * True once the status line and headers are out. From then on no error status can be
+     * sent: handlers must rethrow instead, so the server drops the connection.
+     */
+    static boolean started(HttpExchange exchange) {
+        return exchange.getResponseCode() != -1;
+    }
+
+    // Any failure ends here (a database error from the row stream arrives as an
+    // UncheckedSQLException), so the exchange is never left open without a response
+    private static void abort(HttpExchange exchange, CompressedBody body, Exception e) throws IOException {
+        System.err.println("[JsonResponse] " + exchange.getRequestURI().getPath()
+                + " aborted: " + e.getMessage());
+        if (!body.abandon()) {
+            // Headers are already out. Closing would write the terminating chunk and make a
+            // truncated body look complete, so throw instead: the server then drops the
+            // connection, and the client sees an incomplete chunked response
+            throw new IOException("Response body aborted: " + e.getMessage(), e);
+        }
+        // Failed within the held-back prefix: headers are not out yet, so say so properly,
+        // without the ETag set for the body that never came
+        exchange.getResponseHeaders().remove("ETag");
+        exchange.sendResponseHeaders(500, -1);
+        exchange.close();
+    }
+}
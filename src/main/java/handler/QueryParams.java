@@ -0,0 +1,59 @@
+package handler;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal query-string reader for the embedded HTTP handlers.
+ * Malformed numbers surface as IllegalArgumentException so handlers answer 400.
+ */
+class QueryParams {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    QueryParams(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null || query.isEmpty())
+            return;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty())
+                continue;
+            int eq = pair.indexOf('=');
+            String key   = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? ""   : pair.substring(eq + 1);
+            values.put(URLDecoder.decode(key, StandardCharsets.UTF_8),
+                       URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    String get(String name) {
+        return values.get(name);
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    Long getLong(String name) {
+        String v = values.get(name);
+        if (v == null || v.isBlank())
+            return null;
+        try {
+            return Long.parseLong(v.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + v);
+        }
+    }
+
+    int getInt(String name, int defaultValue) {
+        Long v = getLong(name);
+        if (v == null)
+            return defaultValue;
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid " + name + ": " + v);
+        return v.intValue();
+    }
+}
@@ -12,8 +12,10 @@ public class AppointmentRequest {
     private String status;
     private String type;
     private LocalDateTime creationDate;
+    private long version; // bumped by every UPDATE, see ChangeLogRepository
     private List<ProposedDate> proposedDates = new ArrayList<>();
     private Doctor doctor; // ← ADD THIS
+    private Client client; // only filled by the enriched (JOIN) finders
 
     // Constructors
     public AppointmentRequest() {}
@@ -41,9 +43,13 @@ public class AppointmentRequest {
     public void setType(String type) { this.type = type; }
     public LocalDateTime getCreationDate() { return creationDate; }
     public void setCreationDate(LocalDateTime creationDate) { this.creationDate = creationDate; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
     public List<ProposedDate> getProposedDates() { return proposedDates; }
     public void setProposedDates(List<ProposedDate> proposedDates) { this.proposedDates = proposedDates; }
     public void addProposedDate(ProposedDate proposedDate) { this.proposedDates.add(proposedDate); }
     public Doctor getDoctor() { return doctor; }       // ← ADD THIS
     public void setDoctor(Doctor doctor) { this.doctor = doctor; } // ← ADD THIS
+    public Client getClient() { return client; }
+    public void setClient(Client client) { this.client = client; }
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package models;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read-only, columnar copy of one doctor's appointments for the dashboard.
+ *
+ * Instead of one AppointmentRequest (two LocalDateTimes, two Strings, an ArrayList of
+ * ProposedDates) per row, every field lives in a primitive array indexed by row:
+ * dates as epoch seconds, status and type as byte codes into a small per-timeline
+ * dictionary, and all proposed dates in two flat arrays sliced by {@code dateOffsets}.
+ * Each distinct client is stored once. Filtering and counting scan these arrays and
+ * allocate only their result, never an object per row; {@link #get(int)} materializes
+ * a row only when a card is actually shown. (The calendar reads its month window with
+ * its own range queries instead, so it never needs the whole history.)
+ *
+ * Rows keep the order they were added in (newest first). Dates are held to the second,
+ * which is what the DATETIME columns store. Instances never change: the "with" methods
+ * return a new timeline, so one can be shared between threads and cached.
+ */
+public final class AppointmentTimeline {
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final long     doctorId;
+    private final int      size;
+    private final long[]   ids;
+    private final long[]   clientIds;
+    private final long[]   versions;
+    private final long[]   created;     // epoch seconds
+    private final long[]   confirmed;   // epoch seconds, NO_DATE when not confirmed
+    private final byte[]   status;      // index into statusNames
+    private final byte[]   type;        // index into typeNames
+    private final String[] statusNames;
+    private final String[] typeNames;
+    private final int[]    clientRef;   // index into clients, -1 when the client was not loaded
+    private final Client[] clients;
+    private final int[]    dateOffsets; // proposed dates of row i: [dateOffsets[i], dateOffsets[i + 1])
+    private final long[]   dateIds;
+    private final long[]   dateTimes;   // epoch seconds
+
+    private AppointmentTimeline(Builder b) {
+        this.doctorId    = b.doctorId;
+        this.size        = b.size;
+        this.ids         = Arrays.copyOf(b.ids, b.size);
+        this.clientIds   = Arrays.copyOf(b.clientIds, b.size);
+        this.versions    = Arrays.copyOf(b.versions, b.size);
+        this.created     = Arrays.copyOf(b.created, b.size);
+        this.confirmed   = Arrays.copyOf(b.confirmed, b.size);
+        this.status      = Arrays.copyOf(b.status, b.size);
+        this.type        = Arrays.copyOf(b.type, b.size);
+        this.statusNames = b.statusCodes.keySet().toArray(new String[0]);
+        this.typeNames   = b.typeCodes.keySet().toArray(new String[0]);
+        this.clientRef   = Arrays.copyOf(b.clientRef, b.size);
+        this.clients     = b.clients.toArray(new Client[0]);
+        this.dateOffsets = Arrays.copyOf(b.dateOffsets, b.size + 1);
+        this.dateOffsets[b.size] = b.dateCount;
+        this.dateIds     = Arrays.copyOf(b.dateIds, b.dateCount);
+        this.dateTimes   = Arrays.copyOf(b.dateTimes, b.dateCount);
+    }
+
+    public static AppointmentTimeline empty(long doctorId) {
+        return new Builder(doctorId).build();
+    }
+
+    public long getDoctorId() { return doctorId; }
+    public int  size()        { return size; }
+
+    /** Row of the appointment with this id, or -1. */
+    public int indexOf(long id) {
+        for (int row = 0; row < size; row++)
+            if (ids[row] == id) return row;
+        return -1;
+    }
+
+    public long   getId(int row)       { return ids[row]; }
+    public long   getClientId(int row) { return clientIds[row]; }
+    public String getStatus(int row)   { return statusNames[status[row]]; }
+    public String getType(int row)     { return typeNames[type[row]]; }
+    public LocalDateTime getCreationDate(int row) { return toDateTime(created[row]); }
+
+    /** The client joined in when the timeline was loaded, or null. */
+    public Client getClient(int row) {
+        return clientRef[row] < 0 ? null : clients[clientRef[row]];
+    }
+
+    // ─── QUERIES ────────────────────────────────────────────────
+
+    /** Rows whose status matches (case-insensitively), in timeline order; null or "ALL" means every row. */
+    public int[] rowsWithStatus(String wanted) {
+        if (wanted == null || wanted.equalsIgnoreCase("ALL")) {
+            int[] all = new int[size];
+            for (int row = 0; row < size; row++) all[row] = row;
+            return all;
+        }
+        boolean[] match = statusMatches(wanted);
+        int[] rows = new int[size];
+        int n = 0;
+        for (int row = 0; row < size; row++)
+            if (match[status[row]]) rows[n++] = row;
+        return Arrays.copyOf(rows, n);
+    }
+
+    /** Appointments per status, upper-cased, e.g. {PENDING=3, CONFIRMED=7}. */
+    public Map<String, Long> countByStatus() {
+        long[] perCode = new long[statusNames.length];
+        for (int row = 0; row < size; row++)
+            perCode[status[row]]++;
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int code = 0; code < perCode.length; code++) {
+            if (perCode[code] > 0 && statusNames[code] != null)
+                counts.merge(statusNames[code].toUpperCase(Locale.ROOT), perCode[code], Long::sum);
+        }
+        return counts;
+    }
+
+    // ─── MATERIALIZATION ────────────────────────────────────────
+
+    /** A fresh AppointmentRequest for one row; callers may change it freely. */
+    public AppointmentRequest get(int row) {
+        AppointmentRequest a = new AppointmentRequest(
+                clientIds[row], doctorId, getStatus(row), getType(row), toDateTime(created[row]));
+        a.setId(ids[row]);
+        a.setVersion(versions[row]);
+        a.setConfirmedDate(toDateTime(confirmed[row]));
+        a.setClient(getClient(row));
+        for (int d = dateOffsets[row]; d < dateOffsets[row + 1]; d++) {
+            ProposedDate pd = new ProposedDate();
+            pd.setId(dateIds[d]);
+            pd.setAppointmentRequestId(ids[row]);
+            pd.setProposedDateTime(toDateTime(dateTimes[d]));
+            a.addProposedDate(pd);
+        }
+        return a;
+    }
+
+    public List<AppointmentRequest> toList() {
+        List<AppointmentRequest> list = new ArrayList<>(size);
+        for (int row = 0; row < size; row++)
+            list.add(get(row));
+        return list;
+    }
+
+    // ─── COPY-ON-WRITE UPDATES ──────────────────────────────────
+
+    /** This timeline with {@code row} replaced by {@code a}; the row's client is kept. */
+    public AppointmentTimeline withRow(int row, AppointmentRequest a) {
+        Builder b = new Builder(doctorId);
+        for (int r = 0; r < size; r++) {
+            if (r != row) {
+                copyRow(r, b);
+                continue;
+            }
+            b.add(a.getId(), a.getClientId(), a.getStatus(), a.getType(), a.getCreationDate(),
+                    a.getConfirmedDate(), a.getVersion(), getClient(r));
+            if (a.getProposedDates() != null)
+                for (ProposedDate pd : a.getProposedDates())
+                    b.addProposedDate(pd.getId(), pd.getProposedDateTime());
+        }
+        return b.build();
+    }
+
+    public AppointmentTimeline withoutRow(int row) {
+        Builder b = new Builder(doctorId);
+        for (int r = 0; r < size; r++)
+            if (r != row) copyRow(r, b);
+        return b.build();
+    }
+
+    private void copyRow(int row, Builder b) {
+        b.add(ids[row], clientIds[row], getStatus(row), getType(row), toDateTime(created[row]),
+                toDateTime(confirmed[row]), versions[row], getClient(row));
+        for (int d = dateOffsets[row]; d < dateOffsets[row + 1]; d++)
+            b.addProposedDate(dateIds[d], toDateTime(dateTimes[d]));
+    }
+
+    // ─── HELPERS ────────────────────────────────────────────────
+
+    private boolean[] statusMatches(String wanted) {
+        boolean[] match = new boolean[statusNames.length];
+        for (int code = 0; code < statusNames.length; code++)
+            match[code] = wanted.equalsIgnoreCase(statusNames[code]);
+        return match;
+    }
+
+    // Epoch seconds are only an encoding here; UTC keeps the conversion zone-free
+    private static long toEpoch(LocalDateTime t) {
+        return t == null ? NO_DATE : t.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long epoch) {
+        return epoch == NO_DATE ? null : LocalDateTime.ofEpochSecond(epoch, 0, ZoneOffset.UTC);
+    }
+
+    // ─── BUILDER ────────────────────────────────────────────────
+
+    /** Rows are appended in display order; proposed dates belong to the last row added. */
+    public static final class Builder {
+        private final long doctorId;
+        private int  size = 0;
+        private long[] ids = new long[16], clientIds = new long[16], versions = new long[16];
+        private long[] created = new long[16], confirmed = new long[16];
+        private byte[] status = new byte[16], type = new byte[16];
+        private int[]  clientRef = new int[16];
+        private int[]  dateOffsets = new int[17];
+        private int    dateCount = 0;
+        private long[] dateIds = new long[16], dateTimes = new long[16];
+
+        private final Map<String, Byte>  statusCodes = new LinkedHashMap<>();
+        private final Map<String, Byte>  typeCodes   = new LinkedHashMap<>();
+        private final Map<Long, Integer> clientIndex = new HashMap<>();
+        private final List<Client>       clients     = new ArrayList<>();
+
+        public Builder(long doctorId) {
+            this.doctorId = doctorId;
+        }
+
+        /** True once a client object for this id has been stored; it need not be loaded again. */
+        public boolean hasClient(long clientId) {
+            return clientIndex.containsKey(clientId);
+        }
+
+        public Builder add(long id, long clientId, String statusName, String typeName,
+                           LocalDateTime creationDate, LocalDateTime confirmedDate, long version, Client client) {
+            if (size == ids.length) grow();
+            ids[size]       = id;
+            clientIds[size] = clientId;
+            versions[size]  = version;
+            created[size]   = toEpoch(creationDate);
+            confirmed[size] = toEpoch(confirmedDate);
+            status[size]    = code(statusCodes, statusName);
+            type[size]      = code(typeCodes, typeName);
+
+            Integer ref = clientIndex.get(clientId);
+            if (ref == null && client != null) {
+                ref = clients.size();
+                clients.add(client);
+                clientIndex.put(clientId, ref);
+            }
+            clientRef[size] = ref != null ? ref : -1;
+
+            dateOffsets[size] = dateCount;
+            size++;
+            return this;
+        }
+
+        public Builder addProposedDate(long id, LocalDateTime dateTime) {
+            if (size == 0)
+                throw new IllegalStateException("Add an appointment before its proposed dates.");
+            if (dateCount == dateIds.length) {
+                dateIds   = Arrays.copyOf(dateIds, dateCount * 2);
+                dateTimes = Arrays.copyOf(dateTimes, dateCount * 2);
+            }
+            dateIds[dateCount]   = id;
+            dateTimes[dateCount] = toEpoch(dateTime);
+            dateCount++;
+            return this;
+        }
+
+        public AppointmentTimeline build() {
+            return new AppointmentTimeline(this);
+        }
+
+        private void grow() {
+            int n = ids.length * 2;
+            ids         = Arrays.copyOf(ids, n);
+            clientIds   = Arrays.copyOf(clientIds, n);
+            versions    = Arrays.copyOf(versions, n);
+            created     = Arrays.copyOf(created, n);
+            confirmed   = Arrays.copyOf(confirmed, n);
+            status      = Arrays.copyOf(status, n);
+            type        = Arrays.copyOf(type, n);
+            clientRef   = Arrays.copyOf(clientRef, n);
+            dateOffsets = Arrays.copyOf(dateOffsets, n + 1);
+        }
+
+        private static byte code(Map<String, Byte> codes, String name) {
+            Byte code = codes.get(name);
+            if (code == null) {
+                if (codes.size() > Byte.MAX_VALUE)
+                    throw new IllegalStateException("More than " + (Byte.MAX_VALUE + 1) + " distinct values.");
+                code = (byte) codes.size();
+                codes.put(name, code);
+            }
+            return code;
+        }
+    }
+}
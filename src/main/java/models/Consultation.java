@@ -13,6 +13,7 @@ public class Consultation {
     private String        prescription;
     private LocalDateTime consultationDate;
     private LocalDateTime creationDate;
+    private long          version;   // bumped by every UPDATE
 
     // ─── Constructors ────────────────────────────────────────────
 
@@ -58,4 +59,7 @@ public class Consultation {
 
     public LocalDateTime getCreationDate()                   { return creationDate; }
     public void setCreationDate(LocalDateTime creationDate)  { this.creationDate = creationDate; }
+
+    public long getVersion()                                 { return version; }
+    public void setVersion(long version)                     { this.version = version; }
 }
\ No newline at end of file
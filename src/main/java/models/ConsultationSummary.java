@@ -0,0 +1,53 @@
+package models;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-screen projection of a Consultation. Skips the notes and prescription TEXT
+ * columns and carries only the start of the diagnosis; load the full Consultation
+ * by id when opening it.
+ */
+public class ConsultationSummary {
+
+    /** Characters of the diagnosis fetched for the card preview. */
+    public static final int EXCERPT_LENGTH = 80;
+
+    private long          id;
+    private long          appointmentRequestId;
+    private long          clientId;
+    private long          doctorId;
+    private String        diagnosisExcerpt;  // at most EXCERPT_LENGTH chars, "…" appended if cut
+    private LocalDateTime consultationDate;
+    private LocalDateTime creationDate;
+    private String        appointmentType;   // type of the linked appointment, null if it is gone
+
+    // ─── Constructors ────────────────────────────────────────────
+
+    public ConsultationSummary() {}
+
+    // ─── Getters & Setters ───────────────────────────────────────
+
+    public long getId()                          { return id; }
+    public void setId(long id)                   { this.id = id; }
+
+    public long getAppointmentRequestId()                           { return appointmentRequestId; }
+    public void setAppointmentRequestId(long appointmentRequestId)  { this.appointmentRequestId = appointmentRequestId; }
+
+    public long getClientId()                    { return clientId; }
+    public void setClientId(long clientId)       { this.clientId = clientId; }
+
+    public long getDoctorId()                    { return doctorId; }
+    public void setDoctorId(long doctorId)       { this.doctorId = doctorId; }
+
+    public String getDiagnosisExcerpt()                  { return diagnosisExcerpt; }
+    public void setDiagnosisExcerpt(String excerpt)      { this.diagnosisExcerpt = excerpt; }
+
+    public LocalDateTime getConsultationDate()                       { return consultationDate; }
+    public void setConsultationDate(LocalDateTime consultationDate)  { this.consultationDate = consultationDate; }
+
+    public LocalDateTime getCreationDate()                   { return creationDate; }
+    public void setCreationDate(LocalDateTime creationDate)  { this.creationDate = creationDate; }
+
+    public String getAppointmentType()                       { return appointmentType; }
+    public void setAppointmentType(String appointmentType)   { this.appointmentType = appointmentType; }
+}
@@ -2,11 +2,16 @@ package pi_serenite;
 
 import com.sun.net.httpserver.HttpServer;
 import handler.AppointmentHandler;
+import handler.CacheAdminHandler;
+import handler.ConsultationHandler;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import service.ChangeFeed;
+import util.DBconnection;
+import util.HttpExecutor;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -14,6 +19,7 @@ import java.net.InetSocketAddress;
 public class Main extends Application {
 
     private HttpServer server;
+    private HttpExecutor httpExecutor;
 
     @Override
     public void start(Stage stage) {
@@ -21,6 +27,9 @@ public class Main extends Application {
             // start the HTTP server in background
             startHttpServer();
 
+            // keep local caches in step with writes from other instances
+            ChangeFeed.start();
+
             // load the FXML and show the window
             // Note: Corrected path casing to match file system if needed,
             // usually resources are case-sensitive in JARs but loose on Windows.
@@ -39,11 +48,15 @@ public class Main extends Application {
     }
 
     private void startHttpServer() throws IOException {
-        server = HttpServer.create(new InetSocketAddress(8080), 0);
+        server = HttpServer.create(new InetSocketAddress(8080), HttpExecutor.backlog());
         server.createContext("/api/appointments", new AppointmentHandler());
-        server.setExecutor(null);
+        server.createContext("/api/consultations", new ConsultationHandler());
+        server.createContext("/api/admin/caches", new CacheAdminHandler());
+        // Requests run off the dispatcher thread, so one slow query doesn't stall the rest
+        httpExecutor = new HttpExecutor();
+        server.setExecutor(httpExecutor);
         server.start();
-        System.out.println("HTTP Server running → http://localhost:8080");
+        System.out.println("HTTP Server running → http://localhost:8080 (" + httpExecutor + ")");
     }
 
     @Override
@@ -52,6 +65,10 @@ public class Main extends Application {
             server.stop(0);
             System.out.println("HTTP Server stopped.");
         }
+        if (httpExecutor != null)
+            httpExecutor.shutdown();
+        ChangeFeed.stop();
+        DBconnection.getInstance().shutdown();
         super.stop();
         System.exit(0); // Ensure all threads are killed
     }
@@ -0,0 +1,180 @@
+package repository;
+
+import models.AppointmentRequest;
+import models.ProposedDate;
+import util.DBconnection;
+import util.Transaction;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * High-throughput insert path for migrations: writes appointments with their proposed
+ * dates in sized batches instead of one INSERT (and one generated-key round trip) per row.
+ *
+ * Each batch is one transaction: a multi-row INSERT for the appointments, the generated
+ * ids read back in bulk and assigned in order, then multi-row INSERTs for the children.
+ * A multi-row VALUES insert is a "simple insert" for InnoDB, so its auto-increment ids are
+ * allocated as one consecutive block in row order; the key count is still checked.
+ */
+public class AppointmentBulkWriter {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // MySQL caps a prepared statement at 65,535 placeholders; the appointment INSERT binds
+    // the most per row, and the proposed-date and ChangeLog INSERTs are chunked by the same size
+    private static final int MAX_PLACEHOLDERS = 65_535;
+    private static final int APPOINTMENT_COLUMNS = 6;
+    public static final int MAX_BATCH_SIZE = MAX_PLACEHOLDERS / APPOINTMENT_COLUMNS;
+
+    private final int batchSize;
+    private final ChangeLogRepository changeLog = new ChangeLogRepository();
+
+    public AppointmentBulkWriter() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    public AppointmentBulkWriter(int batchSize) {
+        if (batchSize <= 0)
+            throw new IllegalArgumentException("Batch size must be positive.");
+        if (batchSize > MAX_BATCH_SIZE)
+            throw new IllegalArgumentException("Batch size must be at most " + MAX_BATCH_SIZE
+                    + " (MySQL allows " + MAX_PLACEHOLDERS + " placeholders per statement).");
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Inserts everything {@code appointments} yields, {@code batchSize} appointments at a time,
+     * so the source can itself be streamed. Ids are set on the objects and their dates.
+     */
+    public Result write(Iterable<AppointmentRequest> appointments) throws SQLException {
+        long start = System.nanoTime();
+        long appointmentRows = 0;
+        long dateRows = 0;
+
+        List<AppointmentRequest> batch = new ArrayList<>(batchSize);
+        Iterator<AppointmentRequest> it = appointments.iterator();
+        while (it.hasNext()) {
+            batch.add(it.next());
+            if (batch.size() == batchSize || !it.hasNext()) {
+                List<AppointmentRequest> current = batch;
+                dateRows += Transaction.run(() -> writeBatch(current));
+                appointmentRows += current.size();
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        Result result = new Result(appointmentRows, dateRows, System.nanoTime() - start);
+        System.out.println("[AppointmentBulkWriter] " + result);
+        return result;
+    }
+
+    // Returns the number of proposed dates written
+    private int writeBatch(List<AppointmentRequest> batch) throws SQLException {
+        try (Connection conn = DBconnection.getInstance().getConn()) {
+            insertAppointments(conn, batch);
+
+            List<long[]> changes = new ArrayList<>(batch.size());
+            for (AppointmentRequest app : batch)
+                changes.add(new long[]{app.getId(), app.getDoctorId()});
+            changeLog.recordAll(ChangeLogRepository.APPOINTMENT, changes);
+
+            List<ProposedDate> dates = new ArrayList<>();
+            for (AppointmentRequest app : batch) {
+                if (app.getProposedDates() == null)
+                    continue;
+                for (ProposedDate pd : app.getProposedDates()) {
+                    pd.setAppointmentRequestId(app.getId());
+                    dates.add(pd);
+                }
+            }
+            insertProposedDates(conn, dates);
+            return dates.size();
+        }
+    }
+
+    private void insertAppointments(Connection conn, List<AppointmentRequest> batch) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO AppointmentRequest (clientId, doctorId, status, type, creationDate, confirmedDate) VALUES ");
+        for (int r = 0; r < batch.size(); r++)
+            sql.append(r == 0 ? "(?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?)");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString(), Statement.RETURN_GENERATED_KEYS)) {
+            int i = 1;
+            for (AppointmentRequest a : batch) {
+                pstmt.setLong(i++, a.getClientId());
+                pstmt.setLong(i++, a.getDoctorId());
+                pstmt.setString(i++, a.getStatus());
+                pstmt.setString(i++, a.getType());
+                pstmt.setTimestamp(i++, Timestamp.valueOf(a.getCreationDate()));
+                pstmt.setTimestamp(i++, a.getConfirmedDate() != null
+                        ? Timestamp.valueOf(a.getConfirmedDate())
+                        : null);
+            }
+            pstmt.executeUpdate();
+
+            int row = 0;
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                while (keys.next() && row < batch.size())
+                    batch.get(row++).setId(keys.getLong(1));
+            }
+            if (row != batch.size())
+                throw new SQLException("Expected " + batch.size() + " generated keys, got " + row + ".");
+        }
+    }
+
+    private void insertProposedDates(Connection conn, List<ProposedDate> dates) throws SQLException {
+        for (int from = 0; from < dates.size(); from += batchSize) {
+            List<ProposedDate> chunk = dates.subList(from, Math.min(from + batchSize, dates.size()));
+
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    AppointmentRequestRepository.proposedDatesInsertSql(chunk.size()),
+                    Statement.RETURN_GENERATED_KEYS)) {
+                int i = 1;
+                for (ProposedDate pd : chunk) {
+                    pstmt.setLong(i++, pd.getAppointmentRequestId());
+                    pstmt.setTimestamp(i++, Timestamp.valueOf(pd.getProposedDateTime()));
+                }
+                pstmt.executeUpdate();
+
+                int row = 0;
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    while (keys.next() && row < chunk.size())
+                        chunk.get(row++).setId(keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    // ─── RESULT ─────────────────────────────────────────────────
+
+    /** Rows written and the throughput achieved. */
+    public static class Result {
+        private final long appointments;
+        private final long proposedDates;
+        private final long elapsedNanos;
+
+        Result(long appointments, long proposedDates, long elapsedNanos) {
+            this.appointments  = appointments;
+            this.proposedDates = proposedDates;
+            this.elapsedNanos  = elapsedNanos;
+        }
+
+        public long getAppointments()  { return appointments; }
+        public long getProposedDates() { return proposedDates; }
+        public double getElapsedMillis() { return elapsedNanos / 1_000_000.0; }
+
+        /** Appointment + proposed-date rows inserted per second. */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : (appointments + proposedDates) * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d appointments + %d proposed dates in %.0f ms (%.0f rows/s)",
+                    appointments, proposedDates, getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+}
@@ -1,15 +1,42 @@
 package repository;
 
 import models.AppointmentRequest;
+import models.AppointmentTimeline;
+import models.Client;
+import models.Doctor;
+import models.Page;
 import models.ProposedDate;
 import util.DBconnection;
+import util.InClause;
+import util.KeysetCursor;
+import util.Transaction;
+import util.UncheckedSQLException;
 
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AppointmentRequestRepository {
 
+    /** Related rows the enriched finders can JOIN in alongside the proposed dates. */
+    public enum Expand { CLIENT, DOCTOR }
+
+    private final ChangeLogRepository changeLog = new ChangeLogRepository();
+
     private Connection getConnection() throws SQLException {
         Connection conn = DBconnection.getInstance().getConn();
         if (conn == null) {
@@ -18,158 +45,701 @@ public class AppointmentRequestRepository {
         return conn;
     }
 
-    // ─── APPOINTMENT CRUD ───────────────────────────────────────
+    // ─── APPOINTMENT CRUD
+    // Every write also appends to the ChangeLog in the same transaction, so other
+    // instances can invalidate exactly what changed. ───────────────────────────────────────
 
     public AppointmentRequest save(AppointmentRequest appointment) throws SQLException {
         String sql = "INSERT INTO AppointmentRequest (clientId, doctorId, status, type, creationDate) " +
                 "VALUES (?, ?, ?, ?, ?)";
 
-        Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setLong(1, appointment.getClientId());
-            pstmt.setLong(2, appointment.getDoctorId());
-            pstmt.setString(3, appointment.getStatus());
-            pstmt.setString(4, appointment.getType());
-            pstmt.setTimestamp(5, Timestamp.valueOf(appointment.getCreationDate()));
-            pstmt.executeUpdate();
+        return Transaction.run(() -> {
+            try (Connection conn = getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setLong(1, appointment.getClientId());
+                pstmt.setLong(2, appointment.getDoctorId());
+                pstmt.setString(3, appointment.getStatus());
+                pstmt.setString(4, appointment.getType());
+                pstmt.setTimestamp(5, Timestamp.valueOf(appointment.getCreationDate()));
+                pstmt.executeUpdate();
+
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    if (rs.next())
+                        appointment.setId(rs.getLong(1));
+                }
+            }
+            changeLog.record(ChangeLogRepository.APPOINTMENT, appointment.getId(), appointment.getDoctorId());
+            return appointment;
+        });
+    }
 
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+    public AppointmentRequest findById(long id) throws SQLException {
+        String sql = "SELECT * FROM AppointmentRequest WHERE id = ?";
+        AppointmentRequest app = null;
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next())
-                    appointment.setId(rs.getLong(1));
+                    app = mapRow(rs);
             }
         }
-        return appointment;
+        // Child rows are loaded after the connection is back in the pool, so one lookup never holds two
+        if (app != null)
+            app.setProposedDates(findProposedDatesByAppointmentId(app.getId()));
+        return app;
     }
 
-    public AppointmentRequest findById(long id) throws SQLException {
-        String sql = "SELECT * FROM AppointmentRequest WHERE id = ?";
-        Connection conn = getConnection();
+    /**
+     * Current row version, or null when the appointment does not exist. Every write
+     * (including proposed-date changes, which go through update) bumps it, so it is
+     * enough to tell whether a client's copy is still current.
+     */
+    public Long findVersion(long id) throws SQLException {
+        String sql = "SELECT version FROM AppointmentRequest WHERE id = ?";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong("version") : null;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #findById} but takes a row lock ({@code FOR UPDATE}) until the
+     * surrounding transaction ends, so a read-check-write cannot lose a concurrent
+     * write — call it inside Transaction.run.
+     */
+    public AppointmentRequest lockById(long id) throws SQLException {
+        String sql = "SELECT * FROM AppointmentRequest WHERE id = ? FOR UPDATE";
+        AppointmentRequest app = null;
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    AppointmentRequest app = mapRow(rs);
-                    app.setProposedDates(findProposedDatesByAppointmentId(app.getId()));
-                    return app;
+                if (rs.next())
+                    app = mapRow(rs);
+            }
+        }
+        if (app != null)
+            app.setProposedDates(findProposedDatesByAppointmentId(app.getId()));
+        return app;
+    }
+
+    /**
+     * Owning doctor of an appointment, or null when it does not exist, with a row lock
+     * ({@code FOR UPDATE}) held until the surrounding transaction ends — call it inside
+     * Transaction.run.
+     */
+    public Long lockDoctorId(long id) throws SQLException {
+        String sql = "SELECT doctorId FROM AppointmentRequest WHERE id = ? FOR UPDATE";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong("doctorId") : null;
+            }
+        }
+    }
+
+    /** Appointments (with proposed dates) for all given ids; unknown ids are simply absent. */
+    public Map<Long, AppointmentRequest> findByIds(Collection<Long> ids) throws SQLException {
+        List<AppointmentRequest> list = new ArrayList<>();
+        if (ids.isEmpty())
+            return new HashMap<>();
+
+        try (Connection conn = getConnection()) {
+            for (List<Long> chunk : InClause.chunk(ids)) {
+                String sql = "SELECT * FROM AppointmentRequest WHERE id IN (" + InClause.placeholders(chunk) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    InClause.bind(pstmt, 1, chunk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next())
+                            list.add(mapRow(rs));
+                    }
                 }
             }
         }
-        return null;
+        attachProposedDates(list);
+
+        Map<Long, AppointmentRequest> byId = new HashMap<>();
+        for (AppointmentRequest app : list)
+            byId.put(app.getId(), app);
+        return byId;
     }
 
     public List<AppointmentRequest> findAll() throws SQLException {
         List<AppointmentRequest> list = new ArrayList<>();
         String sql = "SELECT * FROM AppointmentRequest ORDER BY creationDate DESC";
-        Connection conn = getConnection();
 
-        try (Statement stmt = conn.createStatement();
+        try (Connection conn = getConnection();
+                Statement stmt = conn.createStatement();
                 ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                AppointmentRequest app = mapRow(rs);
-                app.setProposedDates(findProposedDatesByAppointmentId(app.getId()));
-                list.add(app);
-            }
+            while (rs.next())
+                list.add(mapRow(rs));
         }
+        attachProposedDates(list);
         return list;
     }
 
+    /**
+     * Lazily streams every appointment (with its proposed dates), newest first, without
+     * building the full list. Rows are read with MySQL row streaming, so memory stays flat
+     * regardless of table size. The stream holds a pooled connection until it is closed —
+     * always use it in try-with-resources.
+     */
+    public Stream<AppointmentRequest> streamAll() throws SQLException {
+        // Children come from the same result set: the connection is busy streaming and
+        // cannot run a second query until the stream is drained.
+        String sql = "SELECT a.*, pd.id AS pdId, pd.proposedDateTime " +
+                "FROM AppointmentRequest a " +
+                "LEFT JOIN ProposedDate pd ON pd.appointmentRequestId = a.id " +
+                "ORDER BY a.creationDate DESC, a.id DESC, pd.id";
+
+        Connection conn = getConnection();
+        Statement stmt = null;
+        try {
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Integer.MIN_VALUE); // Connector/J: stream rows one by one
+            ResultSet rs = stmt.executeQuery(sql);
+            Statement openStmt = stmt;
+            return StreamSupport.stream(new AppointmentSpliterator(rs, EnumSet.noneOf(Expand.class)), false)
+                    .onClose(() -> closeQuietly(rs, openStmt, conn));
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(null, stmt, conn);
+            throw e;
+        }
+    }
+
     public List<AppointmentRequest> findByClientId(long clientId) throws SQLException {
         List<AppointmentRequest> list = new ArrayList<>();
         String sql = "SELECT * FROM AppointmentRequest WHERE clientId = ? ORDER BY creationDate DESC";
-        Connection conn = getConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, clientId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    AppointmentRequest app = mapRow(rs);
-                    app.setProposedDates(findProposedDatesByAppointmentId(app.getId()));
-                    list.add(app);
-                }
+                while (rs.next())
+                    list.add(mapRow(rs));
             }
         }
+        attachProposedDates(list);
         return list;
     }
 
-    public void update(AppointmentRequest appointment) throws SQLException {
+    /** Writes every column and bumps the version; false when no row has this id (nothing written). */
+    public boolean update(AppointmentRequest appointment) throws SQLException {
         String sql = "UPDATE AppointmentRequest " +
-                "SET clientId=?, doctorId=?, confirmedDate=?, status=?, type=?, creationDate=? " +
+                "SET clientId=?, doctorId=?, confirmedDate=?, status=?, type=?, creationDate=?, version=version+1 " +
                 "WHERE id=?";
 
-        Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, appointment.getClientId());
-            pstmt.setLong(2, appointment.getDoctorId());
-            pstmt.setTimestamp(3, appointment.getConfirmedDate() != null
-                    ? Timestamp.valueOf(appointment.getConfirmedDate())
-                    : null);
-            pstmt.setString(4, appointment.getStatus());
-            pstmt.setString(5, appointment.getType());
-            pstmt.setTimestamp(6, Timestamp.valueOf(appointment.getCreationDate()));
-            pstmt.setLong(7, appointment.getId());
-            pstmt.executeUpdate();
-        }
+        int updated = Transaction.run(() -> {
+            // Moving to another doctor changes the old doctor's list too
+            changeLog.recordExisting(ChangeLogRepository.APPOINTMENT, appointment.getId(), appointment.getDoctorId());
+
+            int rows;
+            try (Connection conn = getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, appointment.getClientId());
+                pstmt.setLong(2, appointment.getDoctorId());
+                pstmt.setTimestamp(3, appointment.getConfirmedDate() != null
+                        ? Timestamp.valueOf(appointment.getConfirmedDate())
+                        : null);
+                pstmt.setString(4, appointment.getStatus());
+                pstmt.setString(5, appointment.getType());
+                pstmt.setTimestamp(6, Timestamp.valueOf(appointment.getCreationDate()));
+                pstmt.setLong(7, appointment.getId());
+                rows = pstmt.executeUpdate();
+            }
+            if (rows > 0)
+                changeLog.record(ChangeLogRepository.APPOINTMENT, appointment.getId(), appointment.getDoctorId());
+            return rows;
+        });
+        if (updated == 0)
+            return false;
+        appointment.setVersion(appointment.getVersion() + 1);
+        return true;
     }
 
     public void delete(long id) throws SQLException {
         String sql = "DELETE FROM AppointmentRequest WHERE id = ?";
+
+        Transaction.run(() -> {
+            changeLog.recordExisting(ChangeLogRepository.APPOINTMENT, id, null);
+            try (Connection conn = getConnection();
+                    PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setLong(1, id);
+                pstmt.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    // ─── AGGREGATES ─────────────────────────────────────────────
+
+    /** Number of appointments per status for one doctor, e.g. {PENDING=3, CONFIRMED=7}. */
+    public Map<String, Long> countByStatus(long doctorId) throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        // Plain GROUP BY status can be answered from a (doctorId, status) index alone
+        String sql = "SELECT status, COUNT(*) AS total FROM AppointmentRequest " +
+                "WHERE doctorId = ? GROUP BY status";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, doctorId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String status = rs.getString("status");
+                    if (status != null) // no badge for rows without a status
+                        counts.merge(status.toUpperCase(Locale.ROOT), rs.getLong("total"), Long::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    // ─── CALENDAR WINDOW ────────────────────────────────────────
+    // Half-open [from, to) range on confirmedDate so a (doctorId, status, confirmedDate)
+    // index can seek straight to the visible window.
+
+    /** Confirmed appointments in [from, to) with their client and proposed dates, earliest first. */
+    public List<AppointmentRequest> findConfirmedBetween(long doctorId, LocalDateTime from, LocalDateTime to)
+            throws SQLException {
+        Set<Expand> expand = EnumSet.of(Expand.CLIENT);
+        String sql = enrichedSql("AppointmentRequest a", expand) +
+                "WHERE a.doctorId = ? AND a.status = 'CONFIRMED' " +
+                "AND a.confirmedDate >= ? AND a.confirmedDate < ? ORDER BY a.confirmedDate, a.id, pd.id";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, doctorId);
+            pstmt.setTimestamp(2, Timestamp.valueOf(from));
+            pstmt.setTimestamp(3, Timestamp.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readEnriched(rs, expand);
+            }
+        }
+    }
+
+    /** Confirmed appointments per day in [from, to) — only days that have any. */
+    public Map<LocalDate, Integer> countConfirmedByDay(long doctorId, LocalDateTime from, LocalDateTime to)
+            throws SQLException {
+        Map<LocalDate, Integer> counts = new TreeMap<>();
+        String sql = "SELECT DATE(confirmedDate) AS day, COUNT(*) AS total FROM AppointmentRequest " +
+                "WHERE doctorId = ? AND status = 'CONFIRMED' " +
+                "AND confirmedDate >= ? AND confirmedDate < ? GROUP BY DATE(confirmedDate)";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, doctorId);
+            pstmt.setTimestamp(2, Timestamp.valueOf(from));
+            pstmt.setTimestamp(3, Timestamp.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next())
+                    counts.put(rs.getDate("day").toLocalDate(), rs.getInt("total"));
+            }
+        }
+        return counts;
+    }
+
+    // ─── KEYSET PAGINATION ──────────────────────────────────────
+    // Newest first on (creationDate, id); see KeysetCursor. Served by the
+    // (doctorId, creationDate, id) / (clientId, creationDate, id) indexes.
+
+    public Page<AppointmentRequest> findPage(KeysetCursor after, int limit, Set<Expand> expand)
+            throws SQLException {
+        return findPage(null, 0, after, limit, expand);
+    }
+
+    public Page<AppointmentRequest> findByClientId(long clientId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
+        return findPage("clientId", clientId, after, limit, expand);
+    }
+
+    public Page<AppointmentRequest> findByDoctorId(long doctorId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
+        return findPage("doctorId", doctorId, after, limit, expand);
+    }
+
+    /**
+     * The same pages as a lazy stream of up to {@code limit + 1} appointments — the
+     * extra one only signals that another page exists — for responses written row by
+     * row. Holds a pooled connection until closed; use in try-with-resources.
+     */
+    public Stream<AppointmentRequest> streamPage(KeysetCursor after, int limit, Set<Expand> expand)
+            throws SQLException {
+        return streamPage(null, 0, after, limit, expand);
+    }
+
+    public Stream<AppointmentRequest> streamByClientId(long clientId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
+        return streamPage("clientId", clientId, after, limit, expand);
+    }
+
+    public Stream<AppointmentRequest> streamByDoctorId(long doctorId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
+        return streamPage("doctorId", doctorId, after, limit, expand);
+    }
+
+    /**
+     * Fingerprint of the rows a page would contain (the limit+1 probe row included, so
+     * a change in hasMore shows too): count, sum of versions and XOR of per-row
+     * checksums over (id, version). Reads only the page window — no proposed dates,
+     * no joins — so a caller can tell a page is unchanged without building it.
+     */
+    public long[] fingerprintPage(Long doctorId, Long clientId, KeysetCursor after, int limit)
+            throws SQLException {
+        String ownerColumn = doctorId != null ? "doctorId" : clientId != null ? "clientId" : null;
+        long ownerId = doctorId != null ? doctorId : clientId != null ? clientId : 0;
+        String sql = "SELECT COUNT(*), COALESCE(SUM(version), 0), "
+                + "COALESCE(BIT_XOR(CRC32(CONCAT(id, ':', version))), 0) FROM "
+                + pageWindow(ownerColumn, after, "id, version");
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindPage(pstmt, ownerColumn, ownerId, after, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3) };
+            }
+        }
+    }
+
+    private Page<AppointmentRequest> findPage(String ownerColumn, long ownerId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
+        List<AppointmentRequest> list;
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(pageSql(ownerColumn, after, expand))) {
+            bindPage(pstmt, ownerColumn, ownerId, after, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                list = readEnriched(rs, expand);
+            }
+        }
+
+        String next = null;
+        if (list.size() > limit) {
+            list.remove(limit);
+            AppointmentRequest last = list.get(limit - 1);
+            next = new KeysetCursor(last.getCreationDate(), last.getId()).encode();
+        }
+        return new Page<>(list, next);
+    }
+
+    private Stream<AppointmentRequest> streamPage(String ownerColumn, long ownerId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
         Connection conn = getConnection();
+        PreparedStatement pstmt = null;
+        try {
+            pstmt = conn.prepareStatement(pageSql(ownerColumn, after, expand),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            bindPage(pstmt, ownerColumn, ownerId, after, limit);
+            ResultSet rs = pstmt.executeQuery();
+            Statement openStmt = pstmt;
+            return StreamSupport.stream(new AppointmentSpliterator(rs, expand), false)
+                    .onClose(() -> closeQuietly(rs, openStmt, conn));
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(null, pstmt, conn);
+            throw e;
+        }
+    }
+
+    private static String pageSql(String ownerColumn, KeysetCursor after, Set<Expand> expand) {
+        // The page is cut in a derived table first, so LIMIT counts appointments, not joined rows
+        return enrichedSql(pageWindow(ownerColumn, after, "*"), expand) + ENRICHED_ORDER;
+    }
+
+    // The rows of one page as a derived table "a"; binds with bindPage
+    private static String pageWindow(String ownerColumn, KeysetCursor after, String columns) {
+        List<String> conditions = new ArrayList<>();
+        if (ownerColumn != null)
+            conditions.add(ownerColumn + " = ?");
+        if (after != null)
+            conditions.add("(creationDate < ? OR (creationDate = ? AND id < ?))");
+
+        return "(SELECT " + columns + " FROM AppointmentRequest "
+                + (conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ")
+                + "ORDER BY creationDate DESC, id DESC LIMIT ?) a";
+    }
+
+    private static void bindPage(PreparedStatement pstmt, String ownerColumn, long ownerId, KeysetCursor after,
+            int limit) throws SQLException {
+        int i = 1;
+        if (ownerColumn != null)
+            pstmt.setLong(i++, ownerId);
+        if (after != null) {
+            Timestamp ts = Timestamp.valueOf(after.getDate());
+            pstmt.setTimestamp(i++, ts);
+            pstmt.setTimestamp(i++, ts);
+            pstmt.setLong(i++, after.getId());
+        }
+        // One extra row tells us whether another page exists without a COUNT(*)
+        pstmt.setInt(i, limit + 1);
+    }
+
+    // ─── ENRICHED READS (cards) ─────────────────────────────────
+    // Appointment + proposed dates + client and/or doctor in one JOIN, so a card
+    // needs no follow-up lookups. Rows of one appointment arrive together and are
+    // folded by AppointmentSpliterator.
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    private static final String ENRICHED_ORDER = "ORDER BY a.creationDate DESC, a.id DESC, pd.id";
+
+    public AppointmentRequest findEnrichedById(long id, Set<Expand> expand) throws SQLException {
+        String sql = enrichedSql("AppointmentRequest a", expand) + "WHERE a.id = ? ORDER BY pd.id";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
-            pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<AppointmentRequest> list = readEnriched(rs, expand);
+                return list.isEmpty() ? null : list.get(0);
+            }
+        }
+    }
+
+    public List<AppointmentRequest> findEnrichedByClientId(long clientId, Set<Expand> expand) throws SQLException {
+        return findEnrichedBy("clientId", clientId, expand);
+    }
+
+    private List<AppointmentRequest> findEnrichedBy(String ownerColumn, long ownerId, Set<Expand> expand)
+            throws SQLException {
+        String sql = enrichedSql("AppointmentRequest a", expand) + "WHERE a." + ownerColumn + " = ? " + ENRICHED_ORDER;
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, ownerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return readEnriched(rs, expand);
+            }
         }
     }
 
+    /**
+     * The doctor's appointments, proposed dates and clients as a columnar timeline,
+     * filled straight from the joined rows without building an object per appointment.
+     */
+    public AppointmentTimeline findTimelineByDoctorId(long doctorId) throws SQLException {
+        String sql = enrichedSql("AppointmentRequest a", EnumSet.of(Expand.CLIENT))
+                + "WHERE a.doctorId = ? " + ENRICHED_ORDER;
+        AppointmentTimeline.Builder timeline = new AppointmentTimeline.Builder(doctorId);
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, doctorId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                long current = -1;
+                while (rs.next()) {
+                    long id = rs.getLong("id");
+                    if (id != current) {
+                        current = id;
+                        long clientId = rs.getLong("clientId");
+                        Timestamp confirmed = rs.getTimestamp("confirmedDate");
+                        timeline.add(id, clientId, rs.getString("status"), rs.getString("type"),
+                                rs.getTimestamp("creationDate").toLocalDateTime(),
+                                confirmed != null ? confirmed.toLocalDateTime() : null,
+                                rs.getLong("version"),
+                                timeline.hasClient(clientId) ? null : mapJoinedClient(rs));
+                    }
+                    long pdId = rs.getLong("pdId");
+                    if (!rs.wasNull())
+                        timeline.addProposedDate(pdId, rs.getTimestamp("proposedDateTime").toLocalDateTime());
+                }
+            }
+        }
+        return timeline.build();
+    }
+
+    private static String enrichedSql(String from, Set<Expand> expand) {
+        StringBuilder sql = new StringBuilder("SELECT a.*, pd.id AS pdId, pd.proposedDateTime");
+        if (expand.contains(Expand.CLIENT))
+            sql.append(", c.id AS clientUserId, c.fullName AS clientFullname, c.email AS clientEmail, "
+                    + "c.phone AS clientPhone");
+        if (expand.contains(Expand.DOCTOR))
+            sql.append(", du.id AS doctorUserId, du.fullname AS doctorFullname, du.email AS doctorEmail, "
+                    + "du.phone AS doctorPhone, d.speciality AS doctorSpeciality, d.addressCabine AS doctorAddressCabine");
+
+        sql.append(" FROM ").append(from).append(' ');
+        if (expand.contains(Expand.CLIENT))
+            sql.append("LEFT JOIN User c ON c.id = a.clientId AND c.role = 'CLIENT' ");
+        if (expand.contains(Expand.DOCTOR))
+            sql.append("LEFT JOIN (user du JOIN doctor d ON du.id = d.userId) ON du.id = a.doctorId ");
+        sql.append("LEFT JOIN ProposedDate pd ON pd.appointmentRequestId = a.id ");
+        return sql.toString();
+    }
+
+    private List<AppointmentRequest> readEnriched(ResultSet rs, Set<Expand> expand) throws SQLException {
+        List<AppointmentRequest> list = new ArrayList<>();
+        try {
+            new AppointmentSpliterator(rs, expand).forEachRemaining(list::add);
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        }
+        return list;
+    }
+
     // ─── PROPOSED DATES ─────────────────────────────────────────
 
     public void saveProposedDates(long appointmentId, List<ProposedDate> dates) throws SQLException {
         if (dates == null || dates.isEmpty())
             return;
 
-        String sql = "INSERT INTO ProposedDate (appointmentRequestId, proposedDateTime) VALUES (?, ?)";
-        Connection conn = getConnection();
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            for (ProposedDate pd : dates) {
-                pstmt.setLong(1, appointmentId);
-                pstmt.setTimestamp(2, Timestamp.valueOf(pd.getProposedDateTime()));
-                pstmt.addBatch();
+        // One multi-row INSERT per chunk instead of a statement per date
+        try (Connection conn = getConnection()) {
+            for (int from = 0; from < dates.size(); from += PROPOSED_DATES_PER_INSERT) {
+                List<ProposedDate> chunk = dates.subList(from, Math.min(from + PROPOSED_DATES_PER_INSERT, dates.size()));
+
+                try (PreparedStatement pstmt = conn.prepareStatement(proposedDatesInsertSql(chunk.size()))) {
+                    int i = 1;
+                    for (ProposedDate pd : chunk) {
+                        pstmt.setLong(i++, appointmentId);
+                        pstmt.setTimestamp(i++, Timestamp.valueOf(pd.getProposedDateTime()));
+                    }
+                    pstmt.executeUpdate();
+                }
             }
-            pstmt.executeBatch();
         }
     }
 
+    private static final int PROPOSED_DATES_PER_INSERT = 100;
+
+    static String proposedDatesInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ProposedDate (appointmentRequestId, proposedDateTime) VALUES ");
+        for (int r = 0; r < rows; r++)
+            sql.append(r == 0 ? "(?, ?)" : ", (?, ?)");
+        return sql.toString();
+    }
+
     public List<ProposedDate> findProposedDatesByAppointmentId(long appointmentId) throws SQLException {
         List<ProposedDate> dates = new ArrayList<>();
         String sql = "SELECT * FROM ProposedDate WHERE appointmentRequestId = ?";
-        Connection conn = getConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, appointmentId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    ProposedDate pd = new ProposedDate();
-                    pd.setId(rs.getLong("id"));
-                    pd.setProposedDateTime(rs.getTimestamp("proposedDateTime").toLocalDateTime());
-                    dates.add(pd);
-                }
+                while (rs.next())
+                    dates.add(mapProposedDate(rs));
             }
         }
         return dates;
     }
 
+    /**
+     * Loads the proposed dates of many appointments in one round trip per
+     * {@link InClause#MAX_CHUNK} ids, grouped by appointment id.
+     */
+    public Map<Long, List<ProposedDate>> findProposedDatesByAppointmentIds(Collection<Long> appointmentIds)
+            throws SQLException {
+        Map<Long, List<ProposedDate>> byAppointment = new HashMap<>();
+        if (appointmentIds.isEmpty())
+            return byAppointment;
+
+        try (Connection conn = getConnection()) {
+            for (List<Long> chunk : InClause.chunk(appointmentIds)) {
+                String sql = "SELECT * FROM ProposedDate WHERE appointmentRequestId IN ("
+                        + InClause.placeholders(chunk) + ") ORDER BY id";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    InClause.bind(pstmt, 1, chunk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            ProposedDate pd = mapProposedDate(rs);
+                            byAppointment.computeIfAbsent(pd.getAppointmentRequestId(), k -> new ArrayList<>())
+                                    .add(pd);
+                        }
+                    }
+                }
+            }
+        }
+        return byAppointment;
+    }
+
     public void deleteProposedDates(long appointmentId) throws SQLException {
         String sql = "DELETE FROM ProposedDate WHERE appointmentRequestId = ?";
-        Connection conn = getConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, appointmentId);
             pstmt.executeUpdate();
         }
     }
 
+    // One set-based query for the whole result set instead of one SELECT per row
+    private void attachProposedDates(List<AppointmentRequest> list) throws SQLException {
+        if (list.isEmpty())
+            return;
+
+        List<Long> ids = new ArrayList<>(list.size());
+        for (AppointmentRequest app : list)
+            ids.add(app.getId());
+
+        Map<Long, List<ProposedDate>> byAppointment = findProposedDatesByAppointmentIds(ids);
+        for (AppointmentRequest app : list)
+            app.setProposedDates(byAppointment.getOrDefault(app.getId(), new ArrayList<>()));
+    }
+
+    // ─── STREAMING ──────────────────────────────────────────────
+
+    // Groups consecutive joined rows of the same appointment into one object
+    private class AppointmentSpliterator extends Spliterators.AbstractSpliterator<AppointmentRequest> {
+        private final ResultSet rs;
+        private final Set<Expand> expand;
+        private boolean hasRow;
+        private boolean started = false;
+
+        AppointmentSpliterator(ResultSet rs, Set<Expand> expand) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.rs = rs;
+            this.expand = expand;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super AppointmentRequest> action) {
+            try {
+                if (!started) {
+                    hasRow = rs.next();
+                    started = true;
+                }
+                if (!hasRow)
+                    return false;
+
+                AppointmentRequest app = mapRow(rs);
+                if (expand.contains(Expand.CLIENT))
+                    app.setClient(mapJoinedClient(rs));
+                if (expand.contains(Expand.DOCTOR))
+                    app.setDoctor(mapJoinedDoctor(rs));
+                do {
+                    long pdId = rs.getLong("pdId");
+                    if (!rs.wasNull()) {
+                        ProposedDate pd = new ProposedDate();
+                        pd.setId(pdId);
+                        pd.setAppointmentRequestId(app.getId());
+                        pd.setProposedDateTime(rs.getTimestamp("proposedDateTime").toLocalDateTime());
+                        app.addProposedDate(pd);
+                    }
+                    hasRow = rs.next();
+                } while (hasRow && rs.getLong("id") == app.getId());
+
+                action.accept(app);
+                return true;
+            } catch (SQLException e) {
+                throw new UncheckedSQLException(e);
+            }
+        }
+    }
+
+    static void closeQuietly(ResultSet rs, Statement stmt, Connection conn) {
+        try { if (rs != null) rs.close(); } catch (SQLException ignored) {}
+        try { if (stmt != null) stmt.close(); } catch (SQLException ignored) {}
+        try { if (conn != null) conn.close(); } catch (SQLException ignored) {}
+    }
+
     // ─── MAPPER ─────────────────────────────────────────────────
 
     private AppointmentRequest mapRow(ResultSet rs) throws SQLException {
@@ -183,29 +753,62 @@ public class AppointmentRequestRepository {
         a.setConfirmedDate(rs.getTimestamp("confirmedDate") != null
                 ? rs.getTimestamp("confirmedDate").toLocalDateTime()
                 : null);
+        a.setVersion(rs.getLong("version"));
         return a;
     }
 
+    // Null when the LEFT JOIN found no matching user
+    private Client mapJoinedClient(ResultSet rs) throws SQLException {
+        long id = rs.getLong("clientUserId");
+        if (rs.wasNull())
+            return null;
+        Client c = new Client();
+        c.setId(id);
+        c.setFullname(rs.getString("clientFullname"));
+        c.setEmail(rs.getString("clientEmail"));
+        c.setPhone(rs.getString("clientPhone"));
+        return c;
+    }
+
+    private Doctor mapJoinedDoctor(ResultSet rs) throws SQLException {
+        long id = rs.getLong("doctorUserId");
+        if (rs.wasNull())
+            return null;
+        Doctor d = new Doctor();
+        d.setId(id);
+        d.setFullname(rs.getString("doctorFullname"));
+        d.setEmail(rs.getString("doctorEmail"));
+        d.setPhone(rs.getString("doctorPhone"));
+        d.setSpeciality(rs.getString("doctorSpeciality"));
+        d.setAddressCabine(rs.getString("doctorAddressCabine"));
+        return d;
+    }
+
+    private ProposedDate mapProposedDate(ResultSet rs) throws SQLException {
+        ProposedDate pd = new ProposedDate();
+        pd.setId(rs.getLong("id"));
+        pd.setAppointmentRequestId(rs.getLong("appointmentRequestId"));
+        pd.setProposedDateTime(rs.getTimestamp("proposedDateTime").toLocalDateTime());
+        return pd;
+    }
+
 
     /**
      * Fetch all appointments for a given doctor, ordered newest first.
-     * Paste this inside the AppointmentRequestRepository class.
      */
     public List<AppointmentRequest> findByDoctorId(long doctorId) throws SQLException {
         List<AppointmentRequest> list = new ArrayList<>();
         String sql = "SELECT * FROM AppointmentRequest WHERE doctorId = ? ORDER BY creationDate DESC";
-        Connection conn = getConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, doctorId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    AppointmentRequest app = mapRow(rs);
-                    app.setProposedDates(findProposedDatesByAppointmentId(app.getId()));
-                    list.add(app);
-                }
+                while (rs.next())
+                    list.add(mapRow(rs));
             }
         }
+        attachProposedDates(list);
         return list;
     }
 
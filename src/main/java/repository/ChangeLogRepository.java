@@ -0,0 +1,159 @@
+package repository;
+
+import util.DBconnection;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Append-only log of appointment writes, so every running instance (desktop or API)
+ * can find out what other instances changed and drop just those doctors' entries from
+ * its in-process caches. Only entities something caches are logged.
+ *
+ * Repositories record a change on the same connection as the write itself (inside
+ * one transaction), so a change is visible in the log exactly when the row is.
+ *
+ * The table and the version columns come from {@code db/001_row_versions_and_change_log.sql}.
+ * Old rows can be purged at any time (e.g. older than a day); pollers only ever read
+ * past the highest id they have seen.
+ */
+public class ChangeLogRepository {
+
+    public static final String APPOINTMENT = "AppointmentRequest";
+
+    /** Identifies this process in the log, so it can skip its own writes. */
+    public static final String ORIGIN = UUID.randomUUID().toString();
+
+    private Connection getConnection() throws SQLException {
+        Connection conn = DBconnection.getInstance().getConn();
+        if (conn == null) {
+            throw new SQLException("Database connection is null.");
+        }
+        return conn;
+    }
+
+    // ─── WRITE ──────────────────────────────────────────────────
+
+    public void record(String entity, long entityId, long doctorId) throws SQLException {
+        String sql = "INSERT INTO ChangeLog (entity, entityId, doctorId, origin) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, entity);
+            pstmt.setLong(2, entityId);
+            pstmt.setLong(3, doctorId);
+            pstmt.setString(4, ORIGIN);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Records a change for a row that already exists, taking its doctorId from the row.
+     * {@code table} must be one of the entity constants, never user input.
+     * With {@code unlessDoctorId} set, nothing is recorded if the row already belongs to
+     * that doctor — used before an update to log the doctor a row is moving away from.
+     */
+    public void recordExisting(String table, long entityId, Long unlessDoctorId) throws SQLException {
+        String sql = "INSERT INTO ChangeLog (entity, entityId, doctorId, origin) " +
+                "SELECT ?, id, doctorId, ? FROM " + table + " WHERE id = ?" +
+                (unlessDoctorId != null ? " AND doctorId <> ?" : "");
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, ORIGIN);
+            pstmt.setLong(3, entityId);
+            if (unlessDoctorId != null)
+                pstmt.setLong(4, unlessDoctorId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /** One multi-row INSERT for a whole batch (bulk imports). */
+    public void recordAll(String entity, List<long[]> entityAndDoctorIds) throws SQLException {
+        if (entityAndDoctorIds.isEmpty())
+            return;
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ChangeLog (entity, entityId, doctorId, origin) VALUES ");
+        for (int r = 0; r < entityAndDoctorIds.size(); r++)
+            sql.append(r == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            for (long[] ids : entityAndDoctorIds) {
+                pstmt.setString(i++, entity);
+                pstmt.setLong(i++, ids[0]);
+                pstmt.setLong(i++, ids[1]);
+                pstmt.setString(i++, ORIGIN);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    // ─── READ (pollers) ─────────────────────────────────────────
+
+    /** Highest id in the log, 0 when empty — where a fresh poller starts. */
+    public long findMaxId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(id), 0) FROM ChangeLog";
+
+        try (Connection conn = getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /** Up to {@code limit} changes with an id above {@code afterId}, oldest first. */
+    public List<Change> findAfter(long afterId, int limit) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        String sql = "SELECT id, entity, entityId, doctorId, origin, changedAt FROM ChangeLog " +
+                "WHERE id > ? ORDER BY id LIMIT ?";
+
+        try (Connection conn = getConnection();
+                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next())
+                    changes.add(new Change(rs.getLong("id"), rs.getString("entity"), rs.getLong("entityId"),
+                            rs.getLong("doctorId"), rs.getString("origin"),
+                            rs.getTimestamp("changedAt").toLocalDateTime()));
+            }
+        }
+        return changes;
+    }
+
+    // ─── CHANGE ─────────────────────────────────────────────────
+
+    public static class Change {
+        private final long id;
+        private final String entity;
+        private final long entityId;
+        private final long doctorId;
+        private final String origin;
+        private final LocalDateTime changedAt;
+
+        Change(long id, String entity, long entityId, long doctorId, String origin, LocalDateTime changedAt) {
+            this.id        = id;
+            this.entity    = entity;
+            this.entityId  = entityId;
+            this.doctorId  = doctorId;
+            this.origin    = origin;
+            this.changedAt = changedAt;
+        }
+
+        public long getId()                 { return id; }
+        public String getEntity()           { return entity; }
+        public long getEntityId()           { return entityId; }
+        public long getDoctorId()           { return doctorId; }
+        public String getOrigin()           { return origin; }
+        public LocalDateTime getChangedAt() { return changedAt; }
+
+        /** True for writes made by this process, whose caches are already up to date. */
+        public boolean isLocal()            { return ORIGIN.equals(origin); }
+    }
+}
@@ -2,8 +2,13 @@ package repository;
 
 import models.Client;
 import util.DBconnection;
+import util.InClause;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ClientRepository {
 
@@ -16,9 +21,9 @@ public class ClientRepository {
     public Client findById(long id) throws SQLException {
         // Adjust table/column names to match your actual DB schema
         String sql = "SELECT * FROM User WHERE id = ? AND role = 'CLIENT'";
-        Connection conn = getConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) return mapRow(rs);
@@ -27,6 +32,30 @@ public class ClientRepository {
         return null;
     }
 
+    /** Clients for all given ids, one query per chunk of ids; unknown ids are simply absent. */
+    public Map<Long, Client> findByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Client> clients = new HashMap<>();
+        if (ids.isEmpty()) return clients;
+
+        try (Connection conn = getConnection()) {
+            for (List<Long> chunk : InClause.chunk(ids)) {
+                String sql = "SELECT * FROM User WHERE role = 'CLIENT' AND id IN ("
+                        + InClause.placeholders(chunk) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    InClause.bind(pstmt, 1, chunk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Client c = mapRow(rs);
+                            clients.put(c.getId(), c);
+                        }
+                    }
+                }
+            }
+        }
+        return clients;
+    }
+
     private Client mapRow(ResultSet rs) throws SQLException {
         Client c = new Client();
         c.setId(rs.getLong("id"));
@@ -1,11 +1,21 @@
 package repository;
 
 import models.Consultation;
+import models.ConsultationSummary;
+import models.Page;
 import util.DBconnection;
+import util.KeysetCursor;
+import util.UncheckedSQLException;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ConsultationRepository {
 
@@ -28,9 +38,8 @@ public class ConsultationRepository {
         VALUES (?, ?, ?, ?, ?, ?, ?, ?)
         """;
 
-        Connection conn = getConnection();
-
-        try (PreparedStatement pstmt =
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt =
                      conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             pstmt.setLong(1, consultation.getAppointmentRequestId());
@@ -58,9 +67,9 @@ public class ConsultationRepository {
 
     public Consultation findById(long id) throws SQLException {
         String sql = "SELECT * FROM Consultation WHERE id = ?";
-        Connection conn = getConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
 
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -76,8 +85,8 @@ public class ConsultationRepository {
         List<Consultation> list = new ArrayList<>();
         String sql = "SELECT * FROM Consultation ORDER BY consultationDate DESC";
 
-        Connection conn = getConnection();
-        try (Statement stmt = conn.createStatement();
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -88,6 +97,29 @@ public class ConsultationRepository {
         return list;
     }
 
+    /**
+     * Lazily streams every consultation, newest first, using MySQL row streaming.
+     * Holds a pooled connection until closed — use in try-with-resources.
+     */
+    public Stream<Consultation> streamAll() throws SQLException {
+        String sql = "SELECT * FROM Consultation ORDER BY consultationDate DESC, id DESC";
+
+        Connection conn = getConnection();
+        Statement stmt = null;
+        try {
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            ResultSet rs = stmt.executeQuery(sql);
+            Statement openStmt = stmt;
+
+            return StreamSupport.stream(rowSpliterator(rs), false)
+                    .onClose(() -> AppointmentRequestRepository.closeQuietly(rs, openStmt, conn));
+        } catch (SQLException | RuntimeException e) {
+            AppointmentRequestRepository.closeQuietly(null, stmt, conn);
+            throw e;
+        }
+    }
+
     public List<Consultation> findByDoctorId(long doctorId) throws SQLException {
         List<Consultation> list = new ArrayList<>();
         String sql = """
@@ -96,8 +128,8 @@ public class ConsultationRepository {
             ORDER BY consultationDate DESC
             """;
 
-        Connection conn = getConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, doctorId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -108,18 +140,183 @@ public class ConsultationRepository {
         return list;
     }
 
+    /**
+     * Keyset page of a doctor's consultations, newest first on (consultationDate, id).
+     * Served by the (doctorId, consultationDate, id) index.
+     */
+    public Page<Consultation> findByDoctorId(long doctorId, KeysetCursor after, int limit) throws SQLException {
+        return findPage(doctorId, null, null, null, after, limit);
+    }
+
+    /**
+     * Keyset page of consultations, newest first on (consultationDate, id), narrowed by
+     * any of doctorId, clientId and a [from, to) range on consultationDate (nulls are
+     * ignored). Each filter combination seeks on an index ending in (consultationDate, id):
+     * <pre>
+     * CREATE INDEX idx_consultation_doctor ON Consultation (doctorId, consultationDate, id);
+     * CREATE INDEX idx_consultation_client ON Consultation (clientId, consultationDate, id);
+     * CREATE INDEX idx_consultation_date   ON Consultation (consultationDate, id);
+     * </pre>
+     */
+    public Page<Consultation> findPage(Long doctorId, Long clientId, LocalDateTime from, LocalDateTime to,
+                                       KeysetCursor after, int limit) throws SQLException {
+        List<Consultation> list = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(doctorId, clientId, from, to, after, limit, params);
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapRow(rs));
+                }
+            }
+        }
+
+        String next = null;
+        if (list.size() > limit) {
+            list.remove(limit);
+            Consultation last = list.get(limit - 1);
+            next = new KeysetCursor(last.getConsultationDate(), last.getId()).encode();
+        }
+        return new Page<>(list, next);
+    }
+
+    /**
+     * The same page as a lazy stream of up to {@code limit + 1} rows (the extra one only
+     * signals another page), for responses written row by row. Holds a pooled
+     * connection until closed — use in try-with-resources.
+     */
+    public Stream<Consultation> streamPage(Long doctorId, Long clientId, LocalDateTime from, LocalDateTime to,
+                                           KeysetCursor after, int limit) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = pageSql(doctorId, clientId, from, to, after, limit, params);
+
+        Connection conn = getConnection();
+        PreparedStatement pstmt = null;
+        try {
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            ResultSet rs = pstmt.executeQuery();
+            Statement openStmt = pstmt;
+            return StreamSupport.stream(rowSpliterator(rs), false)
+                    .onClose(() -> AppointmentRequestRepository.closeQuietly(rs, openStmt, conn));
+        } catch (SQLException | RuntimeException e) {
+            AppointmentRequestRepository.closeQuietly(null, pstmt, conn);
+            throw e;
+        }
+    }
+
+    // Filters that are null are left out; params receives the bind values in order
+    private static String pageSql(Long doctorId, Long clientId, LocalDateTime from, LocalDateTime to,
+                                  KeysetCursor after, int limit, List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM Consultation WHERE 1 = 1");
+        if (doctorId != null) {
+            sql.append(" AND doctorId = ?");
+            params.add(doctorId);
+        }
+        if (clientId != null) {
+            sql.append(" AND clientId = ?");
+            params.add(clientId);
+        }
+        if (from != null) {
+            sql.append(" AND consultationDate >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND consultationDate < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        if (after != null) {
+            Timestamp ts = Timestamp.valueOf(after.getDate());
+            sql.append(" AND (consultationDate < ? OR (consultationDate = ? AND id < ?))");
+            params.add(ts);
+            params.add(ts);
+            params.add(after.getId());
+        }
+        sql.append(" ORDER BY consultationDate DESC, id DESC LIMIT ?");
+        params.add(limit + 1);
+        return sql.toString();
+    }
+
+    // ─── SUMMARIES (list screens) ───────────────────
+
+    // The appointment type comes from a LEFT JOIN on the primary key, so a card
+    // never needs its appointment loaded just to show the type badge.
+    private static final String SUMMARY_COLUMNS = """
+            c.id, c.appointmentRequestId, c.clientId, c.doctorId,
+            LEFT(c.diagnosis, %d) AS diagnosisExcerpt,
+            c.consultationDate, c.createdAt, a.type AS appointmentType
+            """.formatted(ConsultationSummary.EXCERPT_LENGTH + 1);
+
+    private static final String SUMMARY_FROM = """
+            FROM Consultation c
+            LEFT JOIN AppointmentRequest a ON a.id = c.appointmentRequestId
+            """;
+
+    public List<ConsultationSummary> findSummariesByDoctorId(long doctorId) throws SQLException {
+        String sql = "SELECT " + SUMMARY_COLUMNS + SUMMARY_FROM + """
+            WHERE c.doctorId = ?
+            ORDER BY c.consultationDate DESC, c.id DESC
+            """;
+
+        return querySummaries(sql, doctorId, null);
+    }
+
+    /**
+     * Doctor's consultations whose diagnosis, notes, prescription or client id contain
+     * {@code text}. Matching happens in SQL so the TEXT columns never leave the server.
+     */
+    public List<ConsultationSummary> searchSummariesByDoctorId(long doctorId, String text) throws SQLException {
+        String sql = "SELECT " + SUMMARY_COLUMNS + SUMMARY_FROM + """
+            WHERE c.doctorId = ?
+              AND (c.diagnosis LIKE ? ESCAPE '!' OR c.notes LIKE ? ESCAPE '!'
+                   OR c.prescription LIKE ? ESCAPE '!' OR CAST(c.clientId AS CHAR) LIKE ? ESCAPE '!')
+            ORDER BY c.consultationDate DESC, c.id DESC
+            """;
+
+        String pattern = "%" + text.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+        return querySummaries(sql, doctorId, pattern);
+    }
+
+    private List<ConsultationSummary> querySummaries(String sql, long doctorId, String pattern) throws SQLException {
+        List<ConsultationSummary> list = new ArrayList<>();
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, doctorId);
+            if (pattern != null) {
+                for (int i = 2; i <= 5; i++) {
+                    pstmt.setString(i, pattern);
+                }
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapSummary(rs));
+                }
+            }
+        }
+        return list;
+    }
+
     // ─── UPDATE ─────────────────────────────────────
 
     public void update(Consultation consultation) throws SQLException {
         String sql = """
             UPDATE Consultation SET
-            notes = ?, diagnosis = ?, prescription = ?, consultationDate = ?
+            notes = ?, diagnosis = ?, prescription = ?, consultationDate = ?,
+            version = version + 1
             WHERE id = ?
             """;
 
-        Connection conn = getConnection();
-
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, consultation.getNotes());
             pstmt.setString(2, consultation.getDiagnosis());
             pstmt.setString(3, consultation.getPrescription());
@@ -127,15 +324,16 @@ public class ConsultationRepository {
             pstmt.setLong(5, consultation.getId());
             pstmt.executeUpdate();
         }
+        consultation.setVersion(consultation.getVersion() + 1);
     }
 
     // ─── DELETE ─────────────────────────────────────
 
     public void delete(long id) throws SQLException {
         String sql = "DELETE FROM Consultation WHERE id = ?";
-        Connection conn = getConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, id);
             pstmt.executeUpdate();
         }
@@ -143,6 +341,22 @@ public class ConsultationRepository {
 
     // ─── MAPPING ─────────────────────────────────────
 
+    // One consultation per row; SQL errors surface as UncheckedSQLException
+    private Spliterator<Consultation> rowSpliterator(ResultSet rs) {
+        return new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Consultation> action) {
+                try {
+                    if (!rs.next()) return false;
+                    action.accept(mapRow(rs));
+                    return true;
+                } catch (SQLException e) {
+                    throw new UncheckedSQLException(e);
+                }
+            }
+        };
+    }
+
     private Consultation mapRow(ResultSet rs) throws SQLException {
         Consultation c = new Consultation();
         c.setId(rs.getLong("id"));
@@ -154,6 +368,24 @@ public class ConsultationRepository {
         c.setPrescription(rs.getString("prescription"));
         c.setConsultationDate(rs.getTimestamp("consultationDate").toLocalDateTime());
         c.setCreationDate(rs.getTimestamp("createdAt").toLocalDateTime());
+        c.setVersion(rs.getLong("version"));
+        return c;
+    }
+
+    private ConsultationSummary mapSummary(ResultSet rs) throws SQLException {
+        ConsultationSummary c = new ConsultationSummary();
+        c.setId(rs.getLong("id"));
+        c.setAppointmentRequestId(rs.getLong("appointmentRequestId"));
+        c.setClientId(rs.getLong("clientId"));
+        c.setDoctorId(rs.getLong("doctorId"));
+        String excerpt = rs.getString("diagnosisExcerpt");
+        if (excerpt != null && excerpt.length() > ConsultationSummary.EXCERPT_LENGTH) {
+            excerpt = excerpt.substring(0, ConsultationSummary.EXCERPT_LENGTH) + "…";
+        }
+        c.setDiagnosisExcerpt(excerpt);
+        c.setConsultationDate(rs.getTimestamp("consultationDate").toLocalDateTime());
+        c.setCreationDate(rs.getTimestamp("createdAt").toLocalDateTime());
+        c.setAppointmentType(rs.getString("appointmentType"));
         return c;
     }
 }
\ No newline at end of file
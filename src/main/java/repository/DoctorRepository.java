@@ -0,0 +1,79 @@
+package repository;
+
+import models.Doctor;
+import util.DBconnection;
+import util.InClause;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DoctorRepository {
+
+    private static final String SELECT = """
+            SELECT
+                u.id,
+                u.fullname,
+                u.email,
+                u.phone,
+                d.speciality,
+                d.addressCabine
+            FROM user u
+            JOIN doctor d ON u.id = d.userId
+            """;
+
+    private Connection getConnection() throws SQLException {
+        Connection conn = DBconnection.getInstance().getConn();
+        if (conn == null) throw new SQLException("Database connection is null.");
+        return conn;
+    }
+
+    public Doctor findById(long id) throws SQLException {
+        String sql = SELECT + "WHERE u.id = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) return mapRow(rs);
+            }
+        }
+        return null;
+    }
+
+    /** Doctors for all given ids in one JOIN per chunk of ids; unknown ids are simply absent. */
+    public Map<Long, Doctor> findByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Doctor> doctors = new HashMap<>();
+        if (ids.isEmpty()) return doctors;
+
+        try (Connection conn = getConnection()) {
+            for (List<Long> chunk : InClause.chunk(ids)) {
+                String sql = SELECT + "WHERE u.id IN (" + InClause.placeholders(chunk) + ")";
+
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    InClause.bind(pstmt, 1, chunk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Doctor d = mapRow(rs);
+                            doctors.put(d.getId(), d);
+                        }
+                    }
+                }
+            }
+        }
+        return doctors;
+    }
+
+    private Doctor mapRow(ResultSet rs) throws SQLException {
+        Doctor doctor = new Doctor();
+        doctor.setId(rs.getLong("id"));
+        doctor.setFullname(rs.getString("fullname"));
+        doctor.setEmail(rs.getString("email"));
+        doctor.setPhone(rs.getString("phone"));
+        doctor.setSpeciality(rs.getString("speciality"));
+        doctor.setAddressCabine(rs.getString("addressCabine"));
+        return doctor;
+    }
+}
@@ -1,17 +1,55 @@
 package service;
 
 import models.AppointmentRequest;
+import models.AppointmentTimeline;
+import models.Page;
 import models.ProposedDate;
+import repository.AppointmentBulkWriter;
 import repository.AppointmentRequestRepository;
+import repository.AppointmentRequestRepository.Expand;
+import repository.ChangeLogRepository;
+import util.KeysetCursor;
+import util.Transaction;
+import util.TtlCache;
 
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class AppointmentRequestService {
 
     private final AppointmentRequestRepository repository = new AppointmentRequestRepository();
 
+    // Per-doctor snapshot of the dashboard list (appointments + proposed dates + clients),
+    // held as a compact columnar AppointmentTimeline and shared by every service instance.
+    // Writes below patch it after commit, so reopening a dashboard after a confirm/refuse
+    // does not reload the whole history.
+    // Tunable with -Dcache.doctorAppointments.maxSize / -Dcache.doctorAppointments.ttlMs.
+    private static final TtlCache<Long, AppointmentTimeline> SNAPSHOTS = new TtlCache<>("doctorAppointments",
+            Integer.getInteger("cache.doctorAppointments.maxSize", 200),
+            Long.getLong("cache.doctorAppointments.ttlMs", 600_000L));
+
+    private static final Object SNAPSHOT_LOCK = new Object();
+    private static long snapshotWrites = 0; // guarded by SNAPSHOT_LOCK
+
+    // Another instance changed one of a doctor's appointments: only that doctor's
+    // snapshot is dropped, the others stay warm
+    static {
+        ChangeFeed.subscribe(ChangeLogRepository.APPOINTMENT, change -> evictSnapshot(change.getDoctorId()));
+    }
+
+    public static final List<String> STATUSES = List.of("PENDING", "CONFIRMED", "REFUSED", "CONSULTED");
+
     public AppointmentRequest createAppointment(AppointmentRequest appointment) throws SQLException {
         // ← business rules live here, not in the repository
         validateAppointment(appointment);
@@ -19,10 +57,34 @@ public class AppointmentRequestService {
         appointment.setStatus("PENDING");
         appointment.setCreationDate(LocalDateTime.now());
 
-        AppointmentRequest saved = repository.save(appointment);
-        repository.saveProposedDates(saved.getId(), appointment.getProposedDates());
+        // Appointment and its dates commit together or not at all
+        return Transaction.run(() -> {
+            AppointmentRequest saved = repository.save(appointment);
+            repository.saveProposedDates(saved.getId(), appointment.getProposedDates());
+            invalidateSnapshot(saved.getDoctorId());
+            return saved;
+        });
+    }
 
-        return saved;
+    /**
+     * Bulk import (e.g. migrating a partner clinic's backlog). Unlike createAppointment the
+     * rows keep their own status and dates; each one is still validated before anything is written.
+     */
+    public AppointmentBulkWriter.Result importAppointments(List<AppointmentRequest> appointments)
+            throws SQLException {
+        for (AppointmentRequest app : appointments) {
+            validateAppointment(app);
+            if (app.getStatus() == null || app.getStatus().isBlank())
+                app.setStatus("PENDING");
+            if (app.getCreationDate() == null)
+                app.setCreationDate(LocalDateTime.now());
+        }
+        AppointmentBulkWriter.Result result = new AppointmentBulkWriter().write(appointments);
+        Set<Long> doctorIds = new HashSet<>();
+        for (AppointmentRequest app : appointments)
+            doctorIds.add(app.getDoctorId());
+        doctorIds.forEach(this::invalidateSnapshot);
+        return result;
     }
 
     public AppointmentRequest getById(long id) throws SQLException {
@@ -32,44 +94,170 @@ public class AppointmentRequestService {
         return app;
     }
 
+    /** One appointment with its proposed dates and the requested client/doctor, in one query. */
+    public AppointmentRequest getEnrichedById(long id, Set<Expand> expand) throws SQLException {
+        AppointmentRequest app = repository.findEnrichedById(id, expand);
+        if (app == null)
+            throw new IllegalArgumentException("Appointment not found with id: " + id);
+        return app;
+    }
+
+    /** Current row version (bumped on every write), or null when the appointment does not exist. */
+    public Long getVersion(long id) throws SQLException {
+        return repository.findVersion(id);
+    }
+
+    /** Many appointments in a constant number of round trips; unknown ids are absent from the map. */
+    public Map<Long, AppointmentRequest> getByIds(Collection<Long> ids) throws SQLException {
+        return repository.findByIds(ids);
+    }
+
     public List<AppointmentRequest> getAllAppointments() throws SQLException {
         return repository.findAll();
     }
 
+    /**
+     * Every appointment as a lazy stream, for exports that must not load the whole table.
+     * The caller must close the stream (try-with-resources) to release its connection.
+     */
+    public Stream<AppointmentRequest> streamAllAppointments() throws SQLException {
+        return repository.streamAll();
+    }
+
     public List<AppointmentRequest> getAppointmentsByClientId(long clientId) throws SQLException {
         return repository.findByClientId(clientId);
     }
 
+    // ─── Enriched lists (cards) ─────────────────────────────────
+    // Each appointment comes back with its proposed dates and the requested
+    // client/doctor already attached — one query, no per-card lookups.
+
+    public List<AppointmentRequest> getEnrichedByClientId(long clientId, Set<Expand> expand) throws SQLException {
+        return repository.findEnrichedByClientId(clientId, expand);
+    }
+
+    // ─── Keyset pages (newest first) ────────────────────────────
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE     = 500;
+
+    public Page<AppointmentRequest> getAppointmentsPage(KeysetCursor after, int limit) throws SQLException {
+        return getAppointmentsPage(after, limit, EnumSet.noneOf(Expand.class));
+    }
+
+    public Page<AppointmentRequest> getAppointmentsPage(KeysetCursor after, int limit, Set<Expand> expand)
+            throws SQLException {
+        return repository.findPage(after, checkLimit(limit), expand);
+    }
+
+    public Page<AppointmentRequest> getAppointmentsByClientId(long clientId, KeysetCursor after, int limit)
+            throws SQLException {
+        return getAppointmentsByClientId(clientId, after, limit, EnumSet.noneOf(Expand.class));
+    }
+
+    public Page<AppointmentRequest> getAppointmentsByClientId(long clientId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
+        return repository.findByClientId(clientId, after, checkLimit(limit), expand);
+    }
+
+    public Page<AppointmentRequest> getAppointmentsByDoctorId(long doctorId, KeysetCursor after, int limit)
+            throws SQLException {
+        return getAppointmentsByDoctorId(doctorId, after, limit, EnumSet.noneOf(Expand.class));
+    }
+
+    public Page<AppointmentRequest> getAppointmentsByDoctorId(long doctorId, KeysetCursor after, int limit,
+            Set<Expand> expand) throws SQLException {
+        return repository.findByDoctorId(doctorId, after, checkLimit(limit), expand);
+    }
+
+    /**
+     * A page as a lazy stream of up to {@code limit + 1} appointments (the extra one only
+     * signals another page), narrowed to a doctor or else a client when given, for
+     * responses written row by row. Close it to release the connection.
+     */
+    public Stream<AppointmentRequest> streamAppointmentsPage(Long doctorId, Long clientId, KeysetCursor after,
+            int limit, Set<Expand> expand) throws SQLException {
+        checkLimit(limit);
+        if (doctorId != null)
+            return repository.streamByDoctorId(doctorId, after, limit, expand);
+        if (clientId != null)
+            return repository.streamByClientId(clientId, after, limit, expand);
+        return repository.streamPage(after, limit, expand);
+    }
+
+    /**
+     * Cheap fingerprint of the page {@link #streamAppointmentsPage} would return for the
+     * same arguments: it changes whenever a row on the page is written, added or removed.
+     */
+    public long[] fingerprintAppointmentsPage(Long doctorId, Long clientId, KeysetCursor after, int limit)
+            throws SQLException {
+        return repository.fingerprintPage(doctorId, doctorId != null ? null : clientId, after, checkLimit(limit));
+    }
+
+    private int checkLimit(int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        return limit;
+    }
+
     public AppointmentRequest confirmAppointment(long id, LocalDateTime confirmedDate) throws SQLException {
-        AppointmentRequest app = getById(id);
+        return Transaction.run(() -> {
+            // Row lock: a concurrent confirm or reschedule waits instead of being overwritten
+            AppointmentRequest app = lockById(id);
 
-        if (!app.getStatus().equals("PENDING")) {
-            throw new IllegalStateException("Only PENDING appointments can be confirmed.");
-        }
+            if (!app.getStatus().equals("PENDING")) {
+                throw new IllegalStateException("Only PENDING appointments can be confirmed.");
+            }
 
-        app.setStatus("CONFIRMED");
-        app.setConfirmedDate(confirmedDate);
-        repository.update(app);
+            app.setStatus("CONFIRMED");
+            app.setConfirmedDate(confirmedDate);
+            write(app);
 
-        return app;
+            return app;
+        });
     }
 
     public AppointmentRequest rescheduleAppointment(long id, List<ProposedDate> newDates) throws SQLException {
-        AppointmentRequest app = getById(id);
+        return Transaction.run(() -> {
+            AppointmentRequest app = lockById(id);
 
-        app.setStatus("PENDING");
-        app.setConfirmedDate(null);
-        app.setProposedDates(newDates);
+            app.setStatus("PENDING");
+            app.setConfirmedDate(null);
+            app.setProposedDates(newDates);
 
-        repository.update(app);
-        repository.deleteProposedDates(id);
-        repository.saveProposedDates(id, newDates);
+            repository.deleteProposedDates(id);
+            repository.saveProposedDates(id, newDates);
+            write(app);
 
-        return app;
+            return app;
+        });
     }
 
     public void cancelAppointment(long id) throws SQLException {
-        repository.delete(id);
+        Transaction.run(() -> {
+            // Locked, so the row cannot move to another doctor before it is deleted
+            Long doctorId = repository.lockDoctorId(id);
+            repository.delete(id);
+            if (doctorId != null)
+                removeFromSnapshot(doctorId, id);
+            return null;
+        });
+    }
+
+    // Inside Transaction.run: the row stays locked until the caller's write commits
+    private AppointmentRequest lockById(long id) throws SQLException {
+        AppointmentRequest app = repository.lockById(id);
+        if (app == null)
+            throw new IllegalArgumentException("Appointment not found with id: " + id);
+        return app;
+    }
+
+    // Patches the snapshot with what was written; if nothing was, the snapshot is reloaded
+    private void write(AppointmentRequest app) throws SQLException {
+        if (repository.update(app))
+            patchSnapshot(app);
+        else
+            invalidateSnapshot(app.getDoctorId());
     }
 
     // ─── Validation ─────────────────────────────────────────────
@@ -87,10 +275,18 @@ public class AppointmentRequestService {
 
     public AppointmentRequest updateAppointment(AppointmentRequest app) throws SQLException {
         validateAppointment(app);
-        repository.update(app);
-        repository.deleteProposedDates(app.getId());
-        repository.saveProposedDates(app.getId(), app.getProposedDates());
-        return app;
+        return Transaction.run(() -> {
+            // Row lock: no reassignment can slip in between this read and the update
+            Long previousDoctorId = repository.lockDoctorId(app.getId());
+            repository.update(app);
+            repository.deleteProposedDates(app.getId());
+            repository.saveProposedDates(app.getId(), app.getProposedDates());
+            // The body is a client's copy (its version may be stale), so reload rather than patch
+            if (previousDoctorId != null && previousDoctorId != app.getDoctorId())
+                invalidateSnapshot(previousDoctorId);
+            invalidateSnapshot(app.getDoctorId());
+            return app;
+        });
     }
 
 
@@ -99,19 +295,142 @@ public class AppointmentRequestService {
      * Called by ConsultationService after a consultation is saved (CONFIRMED → CONSULTED).
      */
     public void updateStatus(long id, String newStatus) throws SQLException {
-        AppointmentRequest app = getById(id);
-        app.setStatus(newStatus);
-        repository.update(app);
+        Transaction.run(() -> {
+            AppointmentRequest app = lockById(id);
+            app.setStatus(newStatus);
+            write(app);
+            return null;
+        });
     }
 
 
 
     /**
-     * Get all appointments for a specific doctor.
-     * Paste this inside the AppointmentRequestService class.
+     * Get all appointments for a specific doctor, newest first, with proposed dates and
+     * clients attached. Materialized from the cached timeline, so callers get fresh objects.
      */
     public List<AppointmentRequest> getAppointmentsByDoctorId(long doctorId) throws SQLException {
-        return repository.findByDoctorId(doctorId);
+        return getTimeline(doctorId).toList();
+    }
+
+    /**
+     * The doctor's appointments as an immutable columnar timeline, for screens that filter,
+     * count and bucket many rows. Served from the per-doctor snapshot; only the first call
+     * (or one after an invalidation / TTL expiry) hits the database.
+     */
+    public AppointmentTimeline getTimeline(long doctorId) throws SQLException {
+        AppointmentTimeline snapshot = SNAPSHOTS.getIfPresent(doctorId);
+        if (snapshot == null) {
+            long writes;
+            synchronized (SNAPSHOT_LOCK) {
+                writes = snapshotWrites;
+            }
+            long start = System.nanoTime();
+            snapshot = repository.findTimelineByDoctorId(doctorId);
+            SNAPSHOTS.recordLoad(System.nanoTime() - start);
+            synchronized (SNAPSHOT_LOCK) {
+                // A write that committed while we were reading may be missing from it
+                if (writes == snapshotWrites)
+                    SNAPSHOTS.put(doctorId, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    // ─── Snapshot maintenance (runs after commit, dropped on rollback) ───
+
+    // Replaces the cached row with the written state; the cached client is kept when it still applies
+    private void patchSnapshot(AppointmentRequest updated) {
+        AppointmentRequest written = copyOf(updated);
+        Transaction.afterCommit(() -> evictOnFailure(written.getDoctorId(), () -> {
+            synchronized (SNAPSHOT_LOCK) {
+                snapshotWrites++;
+                AppointmentTimeline snapshot = SNAPSHOTS.getIfPresent(written.getDoctorId());
+                if (snapshot == null)
+                    return;
+                int row = snapshot.indexOf(written.getId());
+                // Unknown row, new client or new sort position: reload instead
+                if (row < 0 || snapshot.getClientId(row) != written.getClientId()
+                        || !snapshot.getCreationDate(row).equals(written.getCreationDate())) {
+                    SNAPSHOTS.invalidate(written.getDoctorId());
+                    return;
+                }
+                SNAPSHOTS.put(written.getDoctorId(), snapshot.withRow(row, written));
+            }
+        }));
+    }
+
+    private void removeFromSnapshot(long doctorId, long appointmentId) {
+        Transaction.afterCommit(() -> evictOnFailure(doctorId, () -> {
+            synchronized (SNAPSHOT_LOCK) {
+                snapshotWrites++;
+                AppointmentTimeline snapshot = SNAPSHOTS.getIfPresent(doctorId);
+                if (snapshot == null)
+                    return;
+                int row = snapshot.indexOf(appointmentId);
+                if (row >= 0)
+                    SNAPSHOTS.put(doctorId, snapshot.withoutRow(row));
+            }
+        }));
+    }
+
+    // The row is committed either way; if patching the snapshot fails, drop it so the next read reloads
+    private static void evictOnFailure(long doctorId, Runnable patch) {
+        try {
+            patch.run();
+        } catch (RuntimeException e) {
+            evictSnapshot(doctorId);
+            throw e;
+        }
+    }
+
+    private void invalidateSnapshot(long doctorId) {
+        Transaction.afterCommit(() -> evictSnapshot(doctorId));
+    }
+
+    private static void evictSnapshot(long doctorId) {
+        synchronized (SNAPSHOT_LOCK) {
+            snapshotWrites++;
+            SNAPSHOTS.invalidate(doctorId);
+        }
+    }
+
+    // Freezes what was written, in case the caller keeps changing its object before commit
+    private static AppointmentRequest copyOf(AppointmentRequest a) {
+        AppointmentRequest copy = new AppointmentRequest(
+                a.getClientId(), a.getDoctorId(), a.getStatus(), a.getType(), a.getCreationDate());
+        copy.setId(a.getId());
+        copy.setConfirmedDate(a.getConfirmedDate());
+        copy.setVersion(a.getVersion());
+        copy.setProposedDates(a.getProposedDates() != null
+                ? new ArrayList<>(a.getProposedDates())
+                : new ArrayList<>());
+        copy.setClient(a.getClient());
+        copy.setDoctor(a.getDoctor());
+        return copy;
+    }
+
+    /**
+     * Dashboard badge counts in one GROUP BY query. Every known status is present
+     * (0 when the doctor has none), so callers can read the map without null checks.
+     */
+    public Map<String, Long> countByStatus(long doctorId) throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String status : STATUSES)
+            counts.put(status, 0L);
+        counts.putAll(repository.countByStatus(doctorId));
+        return counts;
+    }
+
+    /** Confirmed appointments whose confirmed date falls on {@code day}, with their clients. */
+    public List<AppointmentRequest> getConfirmedOn(long doctorId, LocalDate day) throws SQLException {
+        return repository.findConfirmedBetween(doctorId, day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    /** Calendar density: confirmed appointments per day of {@code month}. */
+    public Map<LocalDate, Integer> countConfirmedByDay(long doctorId, YearMonth month) throws SQLException {
+        return repository.countConfirmedByDay(doctorId,
+                month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
     }
 
     /**
@@ -119,12 +438,15 @@ public class AppointmentRequestService {
      * Paste this inside the AppointmentRequestService class.
      */
     public void refuseAppointment(long id) throws SQLException {
-        AppointmentRequest app = getById(id);
-        if (!app.getStatus().equalsIgnoreCase("PENDING")) {
-            throw new IllegalStateException("Only PENDING appointments can be refused.");
-        }
-        app.setStatus("REFUSED");
-        repository.update(app);
+        Transaction.run(() -> {
+            AppointmentRequest app = lockById(id);
+            if (!app.getStatus().equalsIgnoreCase("PENDING")) {
+                throw new IllegalStateException("Only PENDING appointments can be refused.");
+            }
+            app.setStatus("REFUSED");
+            write(app);
+            return null;
+        });
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package service;
+
+import repository.ChangeLogRepository;
+import repository.ChangeLogRepository.Change;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the ChangeLog for writes made by other instances and hands each one to the
+ * caches that subscribed to its entity, so they can drop exactly the affected entries.
+ * Writes made by this process are skipped: the services already patched their caches.
+ *
+ * Polling is incremental ({@code WHERE id > ?}) and starts at the current end of the
+ * log. Auto-increment ids can commit out of order, so a hole in the ids is re-read on
+ * later polls until it fills or {@code changefeed.gapTimeoutMs} passes (a rolled-back
+ * insert leaves a permanent hole).
+ *
+ * Tunable with -Dchangefeed.pollMs (default 2000) and -Dchangefeed.gapTimeoutMs (10000).
+ */
+public final class ChangeFeed {
+
+    @FunctionalInterface
+    public interface Listener {
+        void onChange(Change change);
+    }
+
+    private static final long POLL_MILLIS        = Long.getLong("changefeed.pollMs", 2_000L);
+    private static final long GAP_TIMEOUT_MILLIS = Long.getLong("changefeed.gapTimeoutMs", 10_000L);
+    private static final int  BATCH              = 500;
+    private static final int  MAX_TRACKED_GAP    = 1_000; // larger jumps are id allocation, not in-flight commits
+
+    private static final Map<String, List<Listener>> LISTENERS = new ConcurrentHashMap<>();
+    private static final ChangeLogRepository repository = new ChangeLogRepository();
+
+    private static ScheduledExecutorService poller; // guarded by ChangeFeed.class
+
+    // Poller-thread state: every id up to safeId is settled; ids above it that were
+    // already dispatched are remembered until the holes below them are resolved.
+    private static long safeId = -1;
+    private static final TreeMap<Long, Long> gapsSince = new TreeMap<>(); // missing id → first seen missing
+    private static final TreeSet<Long> dispatched = new TreeSet<>();
+
+    private ChangeFeed() {}
+
+    public static void subscribe(String entity, Listener listener) {
+        LISTENERS.computeIfAbsent(entity, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public static synchronized void start() {
+        if (poller != null)
+            return;
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(ChangeFeed::pollQuietly, 0, POLL_MILLIS, TimeUnit.MILLISECONDS);
+        System.out.println("[ChangeFeed] Polling every " + POLL_MILLIS + " ms.");
+    }
+
+    public static synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    private static void pollQuietly() {
+        try {
+            poll();
+        } catch (SQLException | RuntimeException e) {
+            // Next poll retries from the same position; nothing is lost
+            System.err.println("[ChangeFeed] Poll failed: " + e.getMessage());
+        }
+    }
+
+    static void poll() throws SQLException {
+        if (safeId < 0) {
+            safeId = repository.findMaxId();
+            return;
+        }
+
+        // Re-reads from safeId, so ids that were holes last time are picked up once they commit
+        long from = safeId;
+        while (true) {
+            List<Change> changes = repository.findAfter(from, BATCH);
+            for (Change change : changes) {
+                if (!dispatched.add(change.getId()))
+                    continue;
+                gapsSince.remove(change.getId());
+                if (!change.isLocal())
+                    dispatch(change);
+            }
+            if (changes.size() < BATCH)
+                break;
+            from = changes.get(changes.size() - 1).getId();
+        }
+        advance();
+    }
+
+    private static void dispatch(Change change) {
+        for (Listener listener : LISTENERS.getOrDefault(change.getEntity(), List.of())) {
+            try {
+                listener.onChange(change);
+            } catch (RuntimeException e) {
+                System.err.println("[ChangeFeed] Listener failed for " + change.getEntity()
+                        + " #" + change.getEntityId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Records holes below the highest dispatched id, gives up on old (or huge) ones,
+    // and moves safeId forward over everything that is now settled.
+    private static void advance() {
+        long now = System.currentTimeMillis();
+        long expected = safeId + 1;
+        for (long id : dispatched) {
+            if (id - expected <= MAX_TRACKED_GAP) {
+                for (long missing = expected; missing < id; missing++)
+                    gapsSince.putIfAbsent(missing, now);
+            }
+            expected = id + 1;
+        }
+        gapsSince.values().removeIf(since -> now - since > GAP_TIMEOUT_MILLIS);
+
+        while (!dispatched.isEmpty()) {
+            long first = dispatched.first();
+            if (!gapsSince.isEmpty() && gapsSince.firstKey() < first)
+                break;
+            dispatched.remove(first);
+            safeId = first;
+        }
+    }
+}
@@ -2,17 +2,85 @@ package service;
 
 import models.Client;
 import repository.ClientRepository;
+import util.TtlCache;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public class ClientService {
 
+    // Shared by every ClientService instance (each controller creates its own), so a
+    // client looked up by one screen is already warm for the next. Size and TTL can be
+    // tuned with -Dcache.clients.maxSize / -Dcache.clients.ttlMs.
+    private static final TtlCache<Long, Client> CACHE = new TtlCache<>("clients",
+            Integer.getInteger("cache.clients.maxSize", 2_000),
+            Long.getLong("cache.clients.ttlMs", 300_000L));
+
+    // Ids with no client are cached too, as this marker with a short TTL
+    // (-Dcache.clients.missTtlMs), so orphaned references stop hitting the database
+    // but a client created meanwhile shows up soon.
+    private static final Client MISSING = new Client();
+    private static final long MISS_TTL_MILLIS = Long.getLong("cache.clients.missTtlMs", 30_000L);
+
     private final ClientRepository repository = new ClientRepository();
 
+    /** The client, or empty when there is none — no exception on a miss. */
+    public Optional<Client> findById(long id) throws SQLException {
+        Client c = CACHE.getIfPresent(id);
+        if (c == null) {
+            long start = System.nanoTime();
+            c = repository.findById(id);
+            CACHE.recordLoad(System.nanoTime() - start);
+            if (c != null) CACHE.put(id, c);
+            else CACHE.put(id, MISSING, MISS_TTL_MILLIS);
+        }
+        return c == MISSING ? Optional.empty() : Optional.of(c);
+    }
+
     public Client getById(long id) throws SQLException {
-        Client c = repository.findById(id);
-        if (c == null)
-            throw new IllegalArgumentException("Client not found with id: " + id);
-        return c;
+        return findById(id).orElseThrow(
+                () -> new IllegalArgumentException("Client not found with id: " + id));
+    }
+
+    /**
+     * Clients for many ids: cached ones come from memory, the rest from one batched
+     * query. Ids with no client are absent from the map (and remembered as missing).
+     */
+    public Map<Long, Client> getByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Client> found = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        for (Long id : new HashSet<>(ids)) {
+            Client c = CACHE.getIfPresent(id);
+            if (c == null) missing.add(id);
+            else if (c != MISSING) found.put(id, c);
+        }
+
+        if (!missing.isEmpty()) {
+            long start = System.nanoTime();
+            Map<Long, Client> loaded = repository.findByIds(missing);
+            CACHE.recordLoad(System.nanoTime() - start);
+            for (Long id : missing) {
+                Client c = loaded.get(id);
+                if (c != null) CACHE.put(id, c);
+                else CACHE.put(id, MISSING, MISS_TTL_MILLIS);
+            }
+            found.putAll(loaded);
+        }
+        return found;
+    }
+
+    // ─── Invalidation hooks — call after anything writes a client row ───
+
+    public void invalidate(long id) {
+        CACHE.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        CACHE.invalidateAll();
     }
-}
\ No newline at end of file
+}
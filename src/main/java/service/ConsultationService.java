@@ -2,13 +2,18 @@ package service;
 
 import models.AppointmentRequest;
 import models.Consultation;
+import models.ConsultationSummary;
+import models.Page;
 import repository.ConsultationRepository;
+import util.KeysetCursor;
+import util.Transaction;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class ConsultationService {
 
@@ -47,14 +52,14 @@ public class ConsultationService {
             }
         }
 
-        // 4. Save consultation
+        // 4. Save consultation and 5. flip appointment → CONSULTED so it vanishes
+        //    from the list — one transaction, so neither happens without the other
         consultation.setCreationDate(LocalDateTime.now());
-        Consultation saved = repository.save(consultation);
-
-        // 5. Flip appointment → CONSULTED so it vanishes from the list
-        appointmentService.updateStatus(appointment.getId(), "CONSULTED");
-
-        return saved;
+        return Transaction.run(() -> {
+            Consultation saved = repository.save(consultation);
+            appointmentService.updateStatus(appointment.getId(), "CONSULTED");
+            return saved;
+        });
     }
 
     // ─── READ ─────────────────────────────────────
@@ -70,10 +75,60 @@ public class ConsultationService {
         return repository.findAll();
     }
 
+    /** Every consultation as a lazy stream; close it to release the connection. */
+    public Stream<Consultation> streamAllConsultations() throws SQLException {
+        return repository.streamAll();
+    }
+
     public List<Consultation> getConsultationsByDoctorId(long doctorId) throws SQLException {
         return repository.findByDoctorId(doctorId);
     }
 
+    public Page<Consultation> getConsultationsByDoctorId(long doctorId, KeysetCursor after, int limit)
+            throws SQLException {
+        checkLimit(limit);
+        return repository.findByDoctorId(doctorId, after, limit);
+    }
+
+    /**
+     * One page of consultations filtered by any of doctor, client and a [from, to) date
+     * range; null filters are ignored. An unfiltered call pages the whole clinic.
+     */
+    public Page<Consultation> getConsultationsPage(Long doctorId, Long clientId, LocalDateTime from,
+                                                   LocalDateTime to, KeysetCursor after, int limit)
+            throws SQLException {
+        checkLimit(limit);
+        checkRange(from, to);
+        return repository.findPage(doctorId, clientId, from, to, after, limit);
+    }
+
+    /** {@link #getConsultationsPage} as a lazy stream of up to limit + 1 rows; close it to release the connection. */
+    public Stream<Consultation> streamConsultationsPage(Long doctorId, Long clientId, LocalDateTime from,
+                                                        LocalDateTime to, KeysetCursor after, int limit)
+            throws SQLException {
+        checkLimit(limit);
+        checkRange(from, to);
+        return repository.streamPage(doctorId, clientId, from, to, after, limit);
+    }
+
+    /** Lightweight cards for the list screen; blank text returns everything. */
+    public List<ConsultationSummary> getSummariesByDoctorId(long doctorId, String text) throws SQLException {
+        if (text == null || text.isBlank())
+            return repository.findSummariesByDoctorId(doctorId);
+        return repository.searchSummariesByDoctorId(doctorId, text.trim());
+    }
+
+    private static void checkLimit(int limit) {
+        if (limit <= 0 || limit > AppointmentRequestService.MAX_PAGE_SIZE)
+            throw new IllegalArgumentException(
+                    "limit must be between 1 and " + AppointmentRequestService.MAX_PAGE_SIZE + ".");
+    }
+
+    private static void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to))
+            throw new IllegalArgumentException("from must be before to.");
+    }
+
     // ─── UPDATE ─────────────────────────────────────
 
     public void updateConsultation(Consultation consultation) throws SQLException {
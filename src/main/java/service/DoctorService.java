@@ -1,50 +1,65 @@
 package service;
 
 import models.Doctor;
-import util.DBconnection;
+import repository.DoctorRepository;
+import util.TtlCache;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 public class DoctorService {
 
-    public Doctor getDoctorById(long id) {
-        Doctor doctor = new Doctor();
-        doctor.setId(id);
-
-        String sql = """
-                SELECT
-                    u.fullname,
-                    u.email,
-                    u.phone,
-                    d.speciality,
-                    d.addressCabine
-                FROM user u
-                JOIN doctor d ON u.id = d.userId
-                WHERE u.id = ?
-                """;
-
-        try (Connection conn = DBconnection.getInstance().getConn();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setLong(1, id);
-
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    doctor.setFullname(rs.getString("fullname"));
-                    doctor.setEmail(rs.getString("email"));
-                    doctor.setPhone(rs.getString("phone"));
-                    doctor.setSpeciality(rs.getString("speciality"));
-                    doctor.setAddressCabine(rs.getString("addressCabine"));
-                }
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+    // Doctor profiles rarely change and every appointment list repeats the same few
+    // doctors, so they are cached across all DoctorService instances.
+    // Tunable with -Dcache.doctors.maxSize / -Dcache.doctors.ttlMs.
+    private static final TtlCache<Long, Doctor> CACHE = new TtlCache<>("doctors",
+            Integer.getInteger("cache.doctors.maxSize", 500),
+            Long.getLong("cache.doctors.ttlMs", 900_000L));
+
+    private final DoctorRepository repository = new DoctorRepository();
 
+    public Doctor getDoctorById(long id) throws SQLException {
+        Doctor doctor = CACHE.get(id, repository::findById);
+        if (doctor == null)
+            throw new IllegalArgumentException("Doctor not found with id: " + id);
         return doctor;
     }
-}
\ No newline at end of file
+
+    /**
+     * Doctor profiles for many ids. Ids are de-duplicated, cached profiles come from memory
+     * and the rest are loaded with one JOIN (per 500 ids) and cached. Ids with no doctor are
+     * absent from the map; database failures are thrown, never turned into blank doctors.
+     */
+    public Map<Long, Doctor> getDoctorsByIds(Collection<Long> ids) throws SQLException {
+        Map<Long, Doctor> found = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Doctor d = CACHE.getIfPresent(id);
+            if (d != null) found.put(id, d);
+            else missing.add(id);
+        }
+
+        if (!missing.isEmpty()) {
+            long start = System.nanoTime();
+            Map<Long, Doctor> loaded = repository.findByIds(missing);
+            CACHE.recordLoad(System.nanoTime() - start);
+            loaded.forEach(CACHE::put);
+            found.putAll(loaded);
+        }
+        return found;
+    }
+
+    // ─── Invalidation hooks — call after anything writes a user/doctor row ───
+
+    public void invalidate(long id) {
+        CACHE.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        CACHE.invalidateAll();
+    }
+}
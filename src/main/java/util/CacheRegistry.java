@@ -0,0 +1,52 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Every {@link TtlCache} registers itself here under its name, so hit rates, load
+ * latency and sizes can be read in one place and any cache can be flushed at runtime
+ * (see the /api/admin/caches endpoint).
+ */
+public final class CacheRegistry {
+
+    private static final Map<String, TtlCache<?, ?>> CACHES = new ConcurrentSkipListMap<>();
+
+    private CacheRegistry() {}
+
+    static void register(TtlCache<?, ?> cache) {
+        if (CACHES.putIfAbsent(cache.getName(), cache) != null)
+            throw new IllegalStateException("A cache named '" + cache.getName() + "' is already registered.");
+    }
+
+    /** Stats of every registered cache, ordered by name. */
+    public static List<CacheStats> getStats() {
+        List<CacheStats> stats = new ArrayList<>();
+        for (TtlCache<?, ?> cache : CACHES.values())
+            stats.add(cache.getStats());
+        return stats;
+    }
+
+    /** Stats of one cache, or null when no cache has that name. */
+    public static CacheStats getStats(String name) {
+        TtlCache<?, ?> cache = CACHES.get(name);
+        return cache != null ? cache.getStats() : null;
+    }
+
+    /** Empties the named cache; false when no cache has that name. */
+    public static boolean flush(String name) {
+        TtlCache<?, ?> cache = CACHES.get(name);
+        if (cache == null)
+            return false;
+        cache.invalidateAll();
+        System.out.println("[CacheRegistry] Flushed " + name);
+        return true;
+    }
+
+    public static void flushAll() {
+        CACHES.values().forEach(TtlCache::invalidateAll);
+        System.out.println("[CacheRegistry] Flushed all caches");
+    }
+}
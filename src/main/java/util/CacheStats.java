@@ -0,0 +1,60 @@
+package util;
+
+/** Point-in-time counters of one {@link TtlCache}, as reported by {@link CacheRegistry}. */
+public class CacheStats {
+
+    private final String name;
+    private final int    size;
+    private final int    maxSize;
+    private final long   hits;
+    private final long   misses;
+    private final long   evictions;
+    private final long   loads;
+    private final long   totalLoadNanos;
+    private final long   maxLoadNanos;
+
+    CacheStats(String name, int size, int maxSize, long hits, long misses, long evictions,
+               long loads, long totalLoadNanos, long maxLoadNanos) {
+        this.name           = name;
+        this.size           = size;
+        this.maxSize        = maxSize;
+        this.hits           = hits;
+        this.misses         = misses;
+        this.evictions      = evictions;
+        this.loads          = loads;
+        this.totalLoadNanos = totalLoadNanos;
+        this.maxLoadNanos   = maxLoadNanos;
+    }
+
+    public String getName()     { return name; }
+    public int    getSize()     { return size; }
+    public int    getMaxSize()  { return maxSize; }
+    public long   getHits()     { return hits; }
+    public long   getMisses()   { return misses; }
+    public long   getEvictions(){ return evictions; }
+    public long   getLoads()    { return loads; }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public double getMissRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) misses / lookups;
+    }
+
+    /** Average time spent in the database filling misses. */
+    public double getAvgLoadMillis() {
+        return loads == 0 ? 0 : totalLoadNanos / 1_000_000.0 / loads;
+    }
+
+    public double getMaxLoadMillis() { return maxLoadNanos / 1_000_000.0; }
+
+    @Override
+    public String toString() {
+        return String.format("%s: size %d/%d, hit rate %.1f%% (%d hits, %d misses), %d evictions, "
+                        + "%d loads avg %.2f ms",
+                name, size, maxSize, getHitRate() * 100, hits, misses, evictions, loads, getAvgLoadMillis());
+    }
+}
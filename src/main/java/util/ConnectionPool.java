@@ -0,0 +1,397 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small bounded JDBC connection pool used behind {@link DBconnection}.
+ *
+ * Callers borrow with {@link #borrow()} and give the connection back by calling
+ * {@code close()} on it (try-with-resources), exactly like a plain DriverManager
+ * connection. Physical connections are validated before reuse, evicted after
+ * sitting idle too long and retired once they reach their maximum lifetime.
+ *
+ * Settings are read from system properties so they can be tuned with -D flags:
+ * db.pool.maxSize, db.pool.minIdle, db.pool.borrowTimeoutMs, db.pool.idleTimeoutMs,
+ * db.pool.maxLifetimeMs, db.pool.validationTimeoutSec, db.pool.statementCacheSize.
+ *
+ * Each physical connection also keeps a {@link StatementCache}, so the repositories'
+ * fixed SQL is parsed and server-prepared once per connection instead of once per call.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int  maxSize;
+    private final int  minIdle;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final int  validationTimeoutSec;
+    private final int  statementCacheSize;
+
+    // A connection returned less than this long ago is handed out without a validation round trip
+    private static final long VALIDATION_SKIP_MS = 500;
+
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // guarded by this
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    // ── Metrics ──────────────────────────────────────────────────
+    private final AtomicLong borrowCount   = new AtomicLong();
+    private final AtomicLong timeoutCount  = new AtomicLong();
+    private final AtomicLong createdCount  = new AtomicLong();
+    private final AtomicLong closedCount   = new AtomicLong();
+    private final AtomicLong waitNanos     = new AtomicLong();
+    private final AtomicLong maxWaitNanos  = new AtomicLong();
+    private final AtomicLong stmtHits      = new AtomicLong();
+    private final AtomicLong stmtMisses    = new AtomicLong();
+    private final AtomicLong stmtEvictions = new AtomicLong();
+    private int totalCount = 0; // physical connections currently open, guarded by this
+
+    public ConnectionPool(String url, String user, String password) {
+        this.url      = url;
+        this.user     = user;
+        this.password = password;
+
+        this.maxSize              = Integer.getInteger("db.pool.maxSize", 10);
+        this.minIdle              = Math.min(Integer.getInteger("db.pool.minIdle", 2), maxSize);
+        this.borrowTimeoutMs      = Long.getLong("db.pool.borrowTimeoutMs", 5_000L);
+        this.idleTimeoutMs        = Long.getLong("db.pool.idleTimeoutMs", 600_000L);
+        this.maxLifetimeMs        = Long.getLong("db.pool.maxLifetimeMs", 1_800_000L);
+        this.validationTimeoutSec = Integer.getInteger("db.pool.validationTimeoutSec", 2);
+        this.statementCacheSize   = Integer.getInteger("db.pool.statementCacheSize", 64);
+
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000L, Math.min(idleTimeoutMs, maxLifetimeMs) / 4);
+        housekeeper.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // ─── BORROW / RETURN ────────────────────────────────────────
+
+    public Connection borrow() throws SQLException {
+        if (shutdown) throw new SQLException("Connection pool is shut down.");
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMs
+                        + " ms waiting for a database connection (pool size " + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pc = takeIdle();
+            if (pc == null) pc = open();
+            borrowCount.incrementAndGet();
+            return pc.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        while (true) {
+            PooledConnection pc;
+            synchronized (this) {
+                pc = idle.pollFirst(); // most recently used first, keeps the rest eligible for eviction
+            }
+            if (pc == null) return null;
+
+            long now = System.currentTimeMillis();
+            if (now - pc.createdAt >= maxLifetimeMs) {
+                discard(pc);
+                continue;
+            }
+            if (now - pc.lastUsed >= VALIDATION_SKIP_MS && !isValid(pc)) {
+                discard(pc);
+                continue;
+            }
+            return pc;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, user, password);
+        synchronized (this) {
+            totalCount++;
+        }
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void release(PooledConnection pc) {
+        try {
+            boolean reusable = !shutdown
+                    && System.currentTimeMillis() - pc.createdAt < maxLifetimeMs
+                    && reset(pc);
+            if (reusable) {
+                pc.lastUsed = System.currentTimeMillis();
+                synchronized (this) {
+                    idle.addFirst(pc);
+                }
+            } else {
+                discard(pc);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Undo anything a caller may have changed so the next borrower gets a clean session
+    private boolean reset(PooledConnection pc) {
+        try {
+            if (pc.physical.isClosed()) return false;
+            pc.statements.releaseAll();
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (pc.physical.isReadOnly()) pc.physical.setReadOnly(false);
+            pc.physical.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.physical.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        synchronized (this) {
+            totalCount--;
+        }
+        closedCount.incrementAndGet();
+        try {
+            pc.statements.clear();
+            pc.physical.close();
+        } catch (SQLException ignored) {}
+    }
+
+    private void recordWait(long nanos) {
+        waitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // ─── HOUSEKEEPING ───────────────────────────────────────────
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        Deque<PooledConnection> expired = new ArrayDeque<>();
+        synchronized (this) {
+            // Oldest idle connections sit at the tail
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                boolean tooOld  = now - pc.createdAt >= maxLifetimeMs;
+                boolean tooIdle = now - pc.lastUsed >= idleTimeoutMs && idle.size() > minIdle;
+                if (tooOld || tooIdle) {
+                    it.remove();
+                    expired.add(pc);
+                }
+            }
+        }
+        expired.forEach(this::discard);
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        Deque<PooledConnection> toClose;
+        synchronized (this) {
+            toClose = new ArrayDeque<>(idle);
+            idle.clear();
+        }
+        toClose.forEach(this::discard);
+    }
+
+    // ─── METRICS ────────────────────────────────────────────────
+
+    public Stats getStats() {
+        synchronized (this) {
+            int idleNow = idle.size();
+            return new Stats(maxSize, totalCount, totalCount - idleNow, idleNow,
+                    permits.getQueueLength(), borrowCount.get(), timeoutCount.get(),
+                    createdCount.get(), closedCount.get(), waitNanos.get(), maxWaitNanos.get(),
+                    stmtHits.get(), stmtMisses.get(), stmtEvictions.get());
+        }
+    }
+
+    /** Point-in-time snapshot of pool usage, handy for logging or an admin endpoint. */
+    public static class Stats {
+        private final int  maxSize;
+        private final int  total;
+        private final int  active;
+        private final int  idle;
+        private final int  waiting;
+        private final long borrowed;
+        private final long timeouts;
+        private final long created;
+        private final long closed;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long statementHits;
+        private final long statementMisses;
+        private final long statementEvictions;
+
+        Stats(int maxSize, int total, int active, int idle, int waiting, long borrowed,
+              long timeouts, long created, long closed, long totalWaitNanos, long maxWaitNanos,
+              long statementHits, long statementMisses, long statementEvictions) {
+            this.maxSize        = maxSize;
+            this.total          = total;
+            this.active         = active;
+            this.idle           = idle;
+            this.waiting        = waiting;
+            this.borrowed       = borrowed;
+            this.timeouts       = timeouts;
+            this.created        = created;
+            this.closed         = closed;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos   = maxWaitNanos;
+            this.statementHits      = statementHits;
+            this.statementMisses    = statementMisses;
+            this.statementEvictions = statementEvictions;
+        }
+
+        public int  getMaxSize()   { return maxSize; }
+        public int  getTotal()     { return total; }
+        public int  getActive()    { return active; }
+        public int  getIdle()      { return idle; }
+        public int  getWaiting()   { return waiting; }
+        public long getBorrowed()  { return borrowed; }
+        public long getTimeouts()  { return timeouts; }
+        public long getCreated()   { return created; }
+        public long getClosed()    { return closed; }
+
+        /** Share of the pool currently handed out, 0.0 – 1.0. */
+        public double getSaturation() { return maxSize == 0 ? 0 : (double) active / maxSize; }
+
+        public double getAvgWaitMillis() {
+            return borrowed == 0 ? 0 : totalWaitNanos / 1_000_000.0 / borrowed;
+        }
+
+        public double getMaxWaitMillis() { return maxWaitNanos / 1_000_000.0; }
+
+        public long getStatementHits()      { return statementHits; }
+        public long getStatementMisses()    { return statementMisses; }
+        public long getStatementEvictions() { return statementEvictions; }
+
+        public double getStatementHitRate() {
+            long lookups = statementHits + statementMisses;
+            return lookups == 0 ? 0 : (double) statementHits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("pool[active=%d idle=%d total=%d/%d waiting=%d saturation=%.0f%% "
+                            + "borrowed=%d timeouts=%d created=%d closed=%d avgWait=%.2fms maxWait=%.2fms "
+                            + "stmtHits=%d stmtMisses=%d stmtEvictions=%d]",
+                    active, idle, total, maxSize, waiting, getSaturation() * 100,
+                    borrowed, timeouts, created, closed, getAvgWaitMillis(), getMaxWaitMillis(),
+                    statementHits, statementMisses, statementEvictions);
+        }
+    }
+
+    // ─── POOLED CONNECTION ──────────────────────────────────────
+
+    private class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        final long createdAt = System.currentTimeMillis();
+        volatile long lastUsed = createdAt;
+
+        PooledConnection(Connection physical) {
+            this.physical   = physical;
+            this.statements = new StatementCache(physical, statementCacheSize,
+                    stmtHits, stmtMisses, stmtEvictions);
+        }
+
+        // Each borrow gets its own proxy so a stale reference cannot touch the next borrower's session
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Lease(this));
+        }
+    }
+
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean closed = false;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(pc);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || pc.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pc.physical + (closed ? ", returned" : "") + "]";
+                }
+                default -> {
+                    if (closed) throw new SQLException("Connection has already been returned to the pool.");
+                    if (StatementCache.isCacheable(method))
+                        return pc.statements.prepare((Connection) proxy, (String) args[0],
+                                StatementCache.autoGeneratedKeys(args));
+                }
+            }
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -1,34 +1,47 @@
 package util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DBconnection {
 
-    private final String url = "jdbc:mysql://localhost:3306/pi_db_doctor";
+    // Server-side prepared statements pay off now that the pool caches them per connection
+    private final String url = "jdbc:mysql://localhost:3306/pi_db_doctor?useServerPrepStmts=true";
     private final String user = "root";
     private final String password = "";
     private static DBconnection instance;
 
-    public static DBconnection getInstance() {
+    private final ConnectionPool pool;
+
+    public static synchronized DBconnection getInstance() {
         if (instance == null) {
             instance = new DBconnection();
         }
         return instance;
     }
 
-    // Returns a fresh connection every time — caller closes it via try-with-resources
+    // Borrows a pooled connection — caller returns it to the pool by closing it (try-with-resources).
+    // Inside Transaction.run the thread's transaction connection is returned instead.
     public Connection getConn() throws SQLException {
-        return DriverManager.getConnection(url, user, password);
+        Connection tx = Transaction.current();
+        return tx != null ? tx : pool.borrow();
+    }
+
+    public ConnectionPool.Stats getPoolStats() {
+        return pool.getStats();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
     }
 
     private DBconnection() {
+        pool = new ConnectionPool(url, user, password);
         // Test the connection once at startup just to confirm DB is reachable
-        try (Connection test = DriverManager.getConnection(url, user, password)) {
+        try (Connection test = pool.borrow()) {
             System.out.println("Connection established");
         } catch (SQLException e) {
             System.out.println("DB connection failed: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for the embedded HTTP server, so a slow request (a long JDBC call) no longer
+ * holds up every other client on the server's single dispatcher thread.
+ *
+ * Two modes, picked with -Dhttp.executor:
+ * <ul>
+ *   <li>{@code virtual} (default) — one virtual thread per request, at most
+ *       {@code http.maxConcurrency} running at once; up to {@code http.queueSize} more
+ *       park cheaply until a slot frees up. Past that the dispatcher blocks before
+ *       handing over the next request, with the same effect as a full pool below, so
+ *       parked threads (each holding an open exchange) stay bounded. Needs a JDK with
+ *       virtual threads (21+); on older runtimes it falls back to {@code pool} with a
+ *       warning.</li>
+ *   <li>{@code pool} — a bounded pool of {@code http.maxConcurrency} platform threads with
+ *       {@code http.queueSize} queued requests. When both are full the dispatcher runs
+ *       the request itself, which stops it accepting and lets the kernel accept queue
+ *       ({@code http.backlog}, see {@link #backlog()}) absorb the burst.</li>
+ * </ul>
+ *
+ * Requests beyond the database pool size just wait for a connection (db.pool.borrowTimeoutMs),
+ * so http.maxConcurrency is best kept a small multiple of db.pool.maxSize.
+ */
+public class HttpExecutor implements Executor {
+
+    private static final int MAX_CONCURRENCY = Integer.getInteger("http.maxConcurrency", 64);
+    private static final int QUEUE_SIZE      = Integer.getInteger("http.queueSize", 256);
+    private static final int BACKLOG         = Integer.getInteger("http.backlog", 128);
+
+    private final String mode;
+    private final ExecutorService delegate;
+    private final Semaphore slots;    // only in virtual mode; the pool bounds itself
+    private final Semaphore admitted; // virtual mode: running + parked requests
+    private final AtomicInteger active = new AtomicInteger();
+
+    public HttpExecutor() {
+        ExecutorService virtual = "pool".equalsIgnoreCase(System.getProperty("http.executor", "virtual"))
+                ? null : newVirtualThreadExecutor();
+        if (virtual != null) {
+            this.mode     = "virtual";
+            this.delegate = virtual;
+            this.slots    = new Semaphore(MAX_CONCURRENCY, true);
+            this.admitted = new Semaphore(MAX_CONCURRENCY + QUEUE_SIZE);
+        } else {
+            this.mode     = "pool";
+            this.delegate = newBoundedPool();
+            this.slots    = null;
+            this.admitted = null;
+        }
+    }
+
+    /** Accept queue length to pass to {@code HttpServer.create}, from -Dhttp.backlog. */
+    public static int backlog() {
+        return BACKLOG;
+    }
+
+    @Override
+    public void execute(Runnable request) {
+        if (admitted != null)
+            admit();
+        try {
+            delegate.execute(() -> {
+                try {
+                    if (slots != null && !acquire())
+                        return;
+                    active.incrementAndGet();
+                    try {
+                        request.run();
+                    } finally {
+                        active.decrementAndGet();
+                        if (slots != null)
+                            slots.release();
+                    }
+                } finally {
+                    if (admitted != null)
+                        admitted.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (admitted != null)
+                admitted.release();
+            throw e;
+        }
+    }
+
+    // Runs on the dispatcher: blocking here stops it accepting, like CallerRunsPolicy in pool mode
+    private void admit() {
+        try {
+            admitted.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("HTTP executor is shutting down.");
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            slots.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // shutting down
+            return false;
+        }
+    }
+
+    public String getMode()        { return mode; }
+    public int getMaxConcurrency() { return MAX_CONCURRENCY; }
+    public int getActive()         { return active.get(); }
+
+    public void shutdown() {
+        delegate.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return mode + " executor, max " + MAX_CONCURRENCY + " concurrent requests, "
+                + QUEUE_SIZE + " waiting, backlog " + BACKLOG;
+    }
+
+    // ─── FACTORIES ──────────────────────────────────────────────
+
+    // Looked up reflectively so the project still compiles for Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("[HttpExecutor] Virtual threads need Java 21+ (running "
+                    + Runtime.version() + "), using a platform thread pool.");
+            return null;
+        }
+    }
+
+    private static ExecutorService newBoundedPool() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_CONCURRENCY, MAX_CONCURRENCY, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE),
+                r -> {
+                    Thread t = new Thread(r, "http-worker-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,58 @@
+package util;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Helpers for set-based {@code WHERE col IN (?, ?, ...)} lookups.
+ *
+ * Ids are de-duplicated and split into chunks of at most {@link #MAX_CHUNK}. Each chunk is
+ * padded up to a fixed bucket size (repeating its last id), so only a handful of distinct
+ * SQL strings ever reach the per-connection statement cache no matter how many ids come in.
+ */
+public final class InClause {
+
+    public static final int MAX_CHUNK = 500;
+
+    private static final int[] BUCKETS = {1, 4, 16, 64, 256, MAX_CHUNK};
+
+    private InClause() {}
+
+    public static List<List<Long>> chunk(Collection<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += MAX_CHUNK)
+            chunks.add(distinct.subList(from, Math.min(from + MAX_CHUNK, distinct.size())));
+        return chunks;
+    }
+
+    /** "?, ?, ?" sized to the bucket the chunk falls in. */
+    public static String placeholders(List<Long> chunk) {
+        int size = bucket(chunk.size());
+        StringBuilder sb = new StringBuilder(size * 3);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    /** Binds the chunk (plus padding) starting at {@code firstIndex}; returns the next free index. */
+    public static int bind(PreparedStatement pstmt, int firstIndex, List<Long> chunk) throws SQLException {
+        int size = bucket(chunk.size());
+        long last = chunk.get(chunk.size() - 1);
+        for (int i = 0; i < size; i++)
+            pstmt.setLong(firstIndex + i, i < chunk.size() ? chunk.get(i) : last);
+        return firstIndex + size;
+    }
+
+    private static int bucket(int n) {
+        for (int b : BUCKETS)
+            if (n <= b) return b;
+        throw new IllegalArgumentException("Chunk larger than " + MAX_CHUNK + ": " + n);
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by (date DESC, id DESC).
+ *
+ * Pages continue with {@code WHERE date < ? OR (date = ? AND id < ?)}, which the
+ * (ownerId, date, id) indexes can seek to directly — page 500 costs the same as page 1,
+ * unlike OFFSET which has to walk every skipped row. Clients only ever see the encoded
+ * token, so the ordering columns can change without breaking them.
+ */
+public final class KeysetCursor {
+
+    private final LocalDateTime date;
+    private final long id;
+
+    public KeysetCursor(LocalDateTime date, long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public LocalDateTime getDate() { return date; }
+    public long getId() { return id; }
+
+    public String encode() {
+        String raw = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns null for a null/blank token (first page); throws IllegalArgumentException if malformed. */
+    public static KeysetCursor decode(String token) {
+        if (token == null || token.isBlank())
+            return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, sep)),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page cursor: " + token);
+        }
+    }
+}
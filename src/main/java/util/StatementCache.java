@@ -0,0 +1,188 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection.
+ *
+ * The repositories keep calling {@code conn.prepareStatement(sql)} and closing the
+ * statement with try-with-resources; the pool routes those calls here so the same SQL
+ * on the same connection reuses the already parsed (and server-prepared) statement.
+ * Closing the handed-out statement only clears its parameters and puts it back.
+ *
+ * Not thread-safe on its own — a physical connection is only ever leased to one
+ * thread at a time, which is what makes the per-connection cache safe.
+ */
+class StatementCache {
+
+    private final Connection physical;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize,
+                   AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.physical  = physical;
+        this.maxSize   = maxSize;
+        this.hits      = hits;
+        this.misses    = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Returns a statement for {@code sql}; {@code owner} is the connection proxy the caller
+     * holds, so {@code stmt.getConnection()} never leaks the physical connection.
+     */
+    PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        if (maxSize <= 0) return physical.prepareStatement(sql, autoGeneratedKeys);
+
+        String key = autoGeneratedKeys + "|" + sql;
+        Entry entry = entries.get(key);
+
+        if (entry != null && !entry.inUse && entry.statement.isClosed()) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry != null && !entry.inUse) {
+            hits.incrementAndGet();
+            entry.inUse = true;
+            entry.owner = owner;
+            return entry.proxy;
+        }
+        misses.incrementAndGet();
+
+        PreparedStatement stmt = physical.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null) {
+            // Same SQL is already open on this connection (nested use) — hand out an uncached one
+            return stmt;
+        }
+
+        entry = new Entry(stmt, owner);
+        entry.inUse = true;
+        entries.put(key, entry);
+        evictIfNeeded();
+        return entry.proxy;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            evictions.incrementAndGet();
+            eldest.evicted = true;
+            if (!eldest.inUse) eldest.closePhysical();
+        }
+    }
+
+    /** Takes back statements a borrower forgot to close, so they are reusable by the next lease. */
+    void releaseAll() {
+        for (Entry entry : entries.values())
+            if (entry.inUse) entry.giveBack();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /** Closes every cached statement; called before the physical connection is closed. */
+    void clear() {
+        entries.values().forEach(Entry::closePhysical);
+        entries.clear();
+    }
+
+    // ─── ENTRY ──────────────────────────────────────────────────
+
+    private static class Entry implements InvocationHandler {
+        final PreparedStatement statement;
+        final PreparedStatement proxy;
+        Connection owner;
+        boolean inUse   = false;
+        boolean evicted = false;
+
+        Entry(PreparedStatement statement, Connection owner) {
+            this.statement = statement;
+            this.owner     = owner;
+            this.proxy     = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (inUse) giveBack();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return !inUse || statement.isClosed();
+                }
+                case "getConnection" -> {
+                    return owner;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (!inUse) throw new SQLException("Statement has already been closed.");
+                }
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void giveBack() {
+            inUse = false;
+            if (evicted) {
+                closePhysical();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+            } catch (SQLException e) {
+                closePhysical();
+            }
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {}
+        }
+    }
+
+    static boolean isCacheable(Method method) {
+        Class<?>[] params = method.getParameterTypes();
+        return method.getName().equals("prepareStatement")
+                && (params.length == 1
+                    || (params.length == 2 && params[1] == int.class));
+    }
+
+    static int autoGeneratedKeys(Object[] args) {
+        return args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+    }
+}
@@ -0,0 +1,119 @@
+package util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several repository calls on one connection and commits once.
+ *
+ * While {@link #run} is executing, {@link DBconnection#getConn()} on the same thread hands
+ * out the transaction's connection (closing it is a no-op), so repositories join the
+ * unit of work without any signature changes. Nested calls join the outer transaction.
+ * Any exception rolls everything back.
+ *
+ * <pre>
+ * return Transaction.run(() -> {
+ *     AppointmentRequest saved = repository.save(app);
+ *     repository.saveProposedDates(saved.getId(), app.getProposedDates());
+ *     return saved;
+ * });
+ * </pre>
+ */
+public final class Transaction {
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws SQLException;
+    }
+
+    private static final ThreadLocal<Connection> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<List<Runnable>> AFTER_COMMIT = new ThreadLocal<>();
+
+    private Transaction() {}
+
+    public static <T> T run(Work<T> work) throws SQLException {
+        if (CURRENT.get() != null)
+            return work.run();
+
+        T result;
+        List<Runnable> callbacks;
+        try (Connection conn = DBconnection.getInstance().getConn()) {
+            conn.setAutoCommit(false);
+            CURRENT.set(nonClosing(conn));
+            AFTER_COMMIT.set(new ArrayList<>());
+            try {
+                result = work.run();
+                conn.commit();
+                callbacks = AFTER_COMMIT.get();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+                throw e;
+            } finally {
+                CURRENT.remove(); // the pool restores auto-commit when the connection is returned
+                AFTER_COMMIT.remove();
+            }
+        }
+        callbacks.forEach(Transaction::runCommitted);
+        return result;
+    }
+
+    /**
+     * Runs {@code action} once the current transaction has committed, or right away when
+     * there is none. Dropped on rollback — for cache updates that must not publish
+     * uncommitted state. Runs after the connection is released, and an exception from
+     * it is logged rather than thrown: the caller's work is already committed, so the
+     * action should leave things safe on failure (e.g. evict rather than half-patch).
+     */
+    public static void afterCommit(Runnable action) {
+        List<Runnable> callbacks = AFTER_COMMIT.get();
+        if (callbacks != null)
+            callbacks.add(action);
+        else
+            runCommitted(action);
+    }
+
+    /** The connection bound to this thread's transaction, or null outside one. */
+    static Connection current() {
+        return CURRENT.get();
+    }
+
+    // The work is already committed and nothing may undo it now, so a failure is only logged
+    private static void runCommitted(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            System.err.println("[Transaction] after-commit action failed: " + e);
+        }
+    }
+
+    // Repositories close what they borrow; inside a transaction that must not end the session
+    private static Connection nonClosing(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close" -> {
+                            return null;
+                        }
+                        case "commit", "rollback", "setAutoCommit" ->
+                            throw new SQLException(method.getName() + "() is managed by Transaction.run.");
+                        default -> {
+                            try {
+                                return method.invoke(conn, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    }
+                });
+    }
+}
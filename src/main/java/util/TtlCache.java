@@ -0,0 +1,137 @@
+package util;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process cache with a time-to-live and least-recently-used eviction.
+ *
+ * Used by the services as a read-through cache in front of repository lookups:
+ * {@link #get(Object, Loader)} returns the cached value or runs the loader once and
+ * keeps the result. Writers call {@link #invalidate} / {@link #invalidateAll} so
+ * the next read goes back to the database.
+ *
+ * Every instance registers with {@link CacheRegistry} under its (unique) name.
+ */
+public class TtlCache<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws SQLException;
+    }
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true); // guarded by this
+
+    private final AtomicLong hits         = new AtomicLong();
+    private final AtomicLong misses       = new AtomicLong();
+    private final AtomicLong evictions    = new AtomicLong();
+    private final AtomicLong loads        = new AtomicLong();
+    private final AtomicLong loadNanos    = new AtomicLong();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+
+    public TtlCache(String name, int maxSize, long ttlMillis) {
+        this.name      = name;
+        this.maxSize   = maxSize;
+        this.ttlMillis = ttlMillis;
+        CacheRegistry.register(this);
+    }
+
+    /** Cached value, or null when absent or expired. */
+    public V getIfPresent(K key) {
+        synchronized (this) {
+            Entry<V> e = entries.get(key);
+            if (e != null && e.expiresAt > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                return e.value;
+            }
+            if (e != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Read-through lookup. A null result from the loader is not cached.
+     * The loader runs outside the lock, so a slow query never blocks other keys.
+     */
+    public V get(K key, Loader<K, V> loader) throws SQLException {
+        V cached = getIfPresent(key);
+        if (cached != null)
+            return cached;
+
+        long start = System.nanoTime();
+        V loaded = loader.load(key);
+        recordLoad(System.nanoTime() - start);
+        if (loaded != null)
+            put(key, loaded);
+        return loaded;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, ttlMillis);
+    }
+
+    public void put(K key, V value, long ttlMillis) {
+        synchronized (this) {
+            entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+            Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Reports time spent loading misses outside {@link #get(Object, Loader)} (batched
+     * lookups), so the registry's load latency covers every path to the database.
+     */
+    public void recordLoad(long nanos) {
+        loads.incrementAndGet();
+        loadNanos.addAndGet(nanos);
+        maxLoadNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public CacheStats getStats() {
+        return new CacheStats(name, size(), maxSize, hits.get(), misses.get(), evictions.get(),
+                loads.get(), loadNanos.get(), maxLoadNanos.get());
+    }
+
+    public String getName()     { return name; }
+    public long getHits()       { return hits.get(); }
+    public long getMisses()     { return misses.get(); }
+    public long getEvictions()  { return evictions.get(); }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value     = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
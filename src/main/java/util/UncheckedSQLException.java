@@ -0,0 +1,21 @@
+package util;
+
+import java.sql.SQLException;
+
+/**
+ * Carries a SQLException out of code that cannot throw checked exceptions,
+ * such as the lazy row streams returned by the repositories.
+ */
+public class UncheckedSQLException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public UncheckedSQLException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}